@@ -0,0 +1,254 @@
+package Entities;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Graphe d'adjacence des régions, non modifiable, stocké en lignes compressées :
+ * les voisins de la région i sont neighbors[offsets[i]] à neighbors[offsets[i + 1] - 1], par numéro croissant,
+ * avec pour chacun la longueur de la frontière partagée. Deux régions sont voisines dès qu'elles partagent une frontière.
+ * Le parcours des voisins d'une région se fait en temps proportionnel à leur nombre, et le test d'adjacence de deux
+ * régions en temps constant : par une matrice de bits pour les cartes d'au plus DENSE_MAX_REGIONS régions, par une
+ * table de hachage des paires de voisins au-delà.
+ */
+public class AdjacencyGraph {
+    private static final long EMPTY = -1L;
+    // Au-delà, la matrice de bits (taille au carré) dépasserait 512 Ko
+    private static final int DENSE_MAX_REGIONS = 2048;
+    private final int[] _offsets;
+    private final int[] _neighbors;
+    private final double[] _sharedLengths;
+    // Matrice d'adjacence, bit a * size() + b, pour les petites cartes ; null sinon
+    private final long[] _matrix;
+    // Paires de voisins (plus petit numéro dans les 32 bits de poids fort), en adressage ouvert, pour les grandes cartes
+    private final long[] _pairs;
+
+    private AdjacencyGraph(int[] offsets, int[] neighbors, double[] sharedLengths) {
+        _offsets = offsets;
+        _neighbors = neighbors;
+        _sharedLengths = sharedLengths;
+
+        if (size() <= DENSE_MAX_REGIONS) {
+            _matrix = new long[(size() * size() + 63) >>> 6];
+            for (int i = 0; i < size(); i++) {
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    int bit = i * size() + neighbors[k];
+                    _matrix[bit >>> 6] |= 1L << bit;
+                }
+            }
+            _pairs = null;
+            return;
+        }
+        _matrix = null;
+        _pairs = new long[Integer.highestOneBit(Math.max(1, neighbors.length)) * 4];
+        Arrays.fill(_pairs, EMPTY);
+        int mask = _pairs.length - 1;
+        for (int i = 0; i < size(); i++) {
+            for (int k = offsets[i]; k < offsets[i + 1] && neighbors[k] < i; k++) {
+                long pair = pair(neighbors[k], i);
+                int slot = hash(pair) & mask;
+                while (_pairs[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                _pairs[slot] = pair;
+            }
+        }
+    }
+
+    /**
+     * Indique le nombre de régions du graphe
+     *
+     * @return Nombre de régions
+     */
+    public int size() {
+        return _offsets.length - 1;
+    }
+
+    /**
+     * Indique le nombre de voisins d'une région
+     *
+     * @param region Numéro de la région
+     * @return Nombre de voisins
+     */
+    public int getDegree(int region) {
+        return _offsets[region + 1] - _offsets[region];
+    }
+
+    /**
+     * Récupère un voisin d'une région
+     *
+     * @param region Numéro de la région
+     * @param k      Rang du voisin, entre 0 et getDegree(region) - 1
+     * @return Numéro du voisin
+     */
+    public int getNeighbor(int region, int k) {
+        return _neighbors[_offsets[region] + k];
+    }
+
+    /**
+     * Récupère la longueur de la frontière partagée avec un voisin
+     *
+     * @param region Numéro de la région
+     * @param k      Rang du voisin, entre 0 et getDegree(region) - 1
+     * @return Longueur cumulée des frontières communes
+     */
+    public double getSharedLength(int region, int k) {
+        return _sharedLengths[_offsets[region] + k];
+    }
+
+    /**
+     * Récupère les voisins d'une région
+     *
+     * @param region Numéro de la région
+     * @return Copie des numéros des voisins, par ordre croissant
+     */
+    public int[] getNeighbors(int region) {
+        return Arrays.copyOfRange(_neighbors, _offsets[region], _offsets[region + 1]);
+    }
+
+    /**
+     * Indique si deux régions partagent une frontière, en temps constant
+     *
+     * @param a Numéro d'une région
+     * @param b Numéro de l'autre région
+     * @return Vrai si les régions sont voisines
+     */
+    public boolean areAdjacent(int a, int b) {
+        if (a == b || a < 0 || b < 0) {
+            return false;
+        }
+        if (_matrix != null) {
+            int bit = a * size() + b;
+            return (_matrix[bit >>> 6] & (1L << bit)) != 0;
+        }
+        long pair = a < b ? pair(a, b) : pair(b, a);
+        int mask = _pairs.length - 1;
+        for (int slot = hash(pair) & mask; _pairs[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (_pairs[slot] == pair) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Récupère la longueur de la frontière partagée par deux régions
+     *
+     * @param a Numéro d'une région
+     * @param b Numéro de l'autre région
+     * @return Longueur cumulée des frontières communes, 0 si elles ne sont pas voisines
+     */
+    public double getSharedLengthBetween(int a, int b) {
+        int k = Arrays.binarySearch(_neighbors, _offsets[a], _offsets[a + 1], b);
+        return k >= 0 ? _sharedLengths[k] : 0;
+    }
+
+    private static long pair(int low, int high) {
+        return ((long) low << 32) | high;
+    }
+
+    private static int hash(long pair) {
+        long h = pair * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    /**
+     * Construit un graphe d'adjacence à partir des frontières partagées, ajoutées une à une
+     */
+    static class Builder {
+        private final int size;
+        private int[] lows = new int[64];
+        private int[] highs = new int[64];
+        private double[] lengths = new double[64];
+        private int count = 0;
+
+        /**
+         * @param size Nombre de régions
+         */
+        Builder(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Ajoute une frontière partagée par plusieurs régions : chaque paire de ces régions devient voisine
+         *
+         * @param regions Numéros des régions partageant la frontière
+         * @param length  Longueur de la frontière
+         */
+        void addBoundary(List<Integer> regions, double length) {
+            for (int j = 1; j < regions.size(); j++) {
+                for (int k = 0; k < j; k++) {
+                    add(regions.get(k), regions.get(j), length);
+                }
+            }
+        }
+
+        private void add(int a, int b, double length) {
+            if (a == b) {
+                return;
+            }
+            if (count == lows.length) {
+                lows = Arrays.copyOf(lows, count * 2);
+                highs = Arrays.copyOf(highs, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            lows[count] = Math.min(a, b);
+            highs[count] = Math.max(a, b);
+            lengths[count] = length;
+            count++;
+        }
+
+        AdjacencyGraph build() {
+            // Chaque frontière est rangée dans la ligne de ses deux régions
+            int[] offsets = new int[size + 1];
+            for (int e = 0; e < count; e++) {
+                offsets[lows[e] + 1]++;
+                offsets[highs[e] + 1]++;
+            }
+            for (int i = 0; i < size; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] fill = Arrays.copyOf(offsets, size);
+            int[] neighbors = new int[2 * count];
+            double[] sharedLengths = new double[2 * count];
+            for (int e = 0; e < count; e++) {
+                neighbors[fill[lows[e]]] = highs[e];
+                sharedLengths[fill[lows[e]]++] = lengths[e];
+                neighbors[fill[highs[e]]] = lows[e];
+                sharedLengths[fill[highs[e]]++] = lengths[e];
+            }
+
+            // Tri de chaque ligne, peu longue, et fusion des frontières partagées par les mêmes régions
+            int[] compactOffsets = new int[size + 1];
+            int written = 0;
+            for (int i = 0; i < size; i++) {
+                int from = offsets[i];
+                int to = offsets[i + 1];
+                for (int k = from + 1; k < to; k++) {
+                    int neighbor = neighbors[k];
+                    double length = sharedLengths[k];
+                    int l = k - 1;
+                    while (l >= from && neighbors[l] > neighbor) {
+                        neighbors[l + 1] = neighbors[l];
+                        sharedLengths[l + 1] = sharedLengths[l];
+                        l--;
+                    }
+                    neighbors[l + 1] = neighbor;
+                    sharedLengths[l + 1] = length;
+                }
+                compactOffsets[i] = written;
+                for (int k = from; k < to; k++) {
+                    if (written > compactOffsets[i] && neighbors[written - 1] == neighbors[k]) {
+                        sharedLengths[written - 1] += sharedLengths[k];
+                    } else {
+                        neighbors[written] = neighbors[k];
+                        sharedLengths[written] = sharedLengths[k];
+                        written++;
+                    }
+                }
+            }
+            compactOffsets[size] = written;
+            return new AdjacencyGraph(compactOffsets, Arrays.copyOf(neighbors, written), Arrays.copyOf(sharedLengths, written));
+        }
+    }
+}
@@ -1,36 +1,190 @@
 package Entities;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * Décrit une frontière
+ * Décrit une frontière, par la suite des numéros de ses sommets dans un VertexPool
  *
  * @author Théophile
  */
 public class Boundary {
-    private final List<Point> _points;
+    private final VertexPool _pool;
+    private int[] _vertices;
+    private int _size;
+    // Coordonnées recopiées à la première demande, une fois la frontière complète
+    private volatile PackedCoordinates _packed;
+    // Importance de chaque sommet, calculée à la première demande
+    private volatile double[] _importances;
+    // Niveaux de détail tirés de ces importances, calculés à la première demande
+    private volatile DetailLevels _detailLevels;
 
-    public Boundary() {
-        _points = new ArrayList<>();
+    /**
+     * Construit une frontière vide, complétée au fur et à mesure par add()
+     *
+     * @param pool Ensemble contenant les sommets
+     */
+    Boundary(VertexPool pool) {
+        _pool = pool;
+        _vertices = new int[8];
+        _size = 0;
+    }
+
+    /**
+     * Construire une frontière contenant un ensemble de sommets
+     *
+     * @param pool     Ensemble contenant les sommets
+     * @param vertices Numéros des sommets contenus par la frontière
+     */
+    public Boundary(VertexPool pool, int[] vertices) {
+        _pool = pool;
+        _vertices = vertices;
+        _size = vertices.length;
+    }
+
+    void add(int vertex) {
+        if (_size == _vertices.length) {
+            _vertices = Arrays.copyOf(_vertices, _size * 2);
+        }
+        _vertices[_size++] = vertex;
+        _packed = null;
+        _importances = null;
+        _detailLevels = null;
+    }
+
+    public VertexPool getPool() {
+        return _pool;
     }
 
     /**
-     * Construire une frontière contenant un ensemble de points
+     * Indique le nombre de sommets de la frontière
      *
-     * @param points Points contenus par la frontière
+     * @return Nombre de sommets
      */
-    public Boundary(List<Point> points) {
-        _points = points;
+    public int size() {
+        return _size;
     }
 
     /**
-     * Retourne tous les points d'une frontière
+     * Récupère le numéro d'un sommet
      *
-     * @return Points contenus par la frontière
+     * @param i Index du sommet dans la frontière
+     * @return Numéro du sommet dans le VertexPool
+     */
+    public int getVertex(int i) {
+        return _vertices[i];
+    }
+
+    public double getX(int i) {
+        return getXs()[i];
+    }
+
+    public double getY(int i) {
+        return getYs()[i];
+    }
+
+    /**
+     * Récupère les coordonnées en X de tous les sommets, dans un tableau contigu calculé une seule fois
+     *
+     * @return Coordonnées en X, à ne pas modifier
+     */
+    public double[] getXs() {
+        return packed().xs;
+    }
+
+    /**
+     * Récupère les coordonnées en Y de tous les sommets, dans un tableau contigu calculé une seule fois
+     *
+     * @return Coordonnées en Y, à ne pas modifier
+     */
+    public double[] getYs() {
+        return packed().ys;
+    }
+
+    public double getMinX() {
+        return packed().minX;
+    }
+
+    public double getMinY() {
+        return packed().minY;
+    }
+
+    public double getMaxX() {
+        return packed().maxX;
+    }
+
+    public double getMaxY() {
+        return packed().maxY;
+    }
+
+    /**
+     * Calcule la longueur de la ligne passant par tous les sommets, dans l'ordre
+     *
+     * @return Longueur
+     */
+    public double getLength() {
+        return packed().length;
+    }
+
+    /**
+     * Récupère l'importance de chaque sommet, soit son aire effective de Visvalingam, calculée une seule fois.
+     * Les sommets d'importance supérieure à une aire donnée forment la frontière simplifiée à cette aire ; les
+     * extrémités, d'importance infinie, sont toujours gardées. Une frontière partagée n'ayant qu'un seul calcul,
+     * les régions voisines restent jointives quel que soit le seuil.
+     *
+     * @return Importance des sommets, à ne pas modifier
+     */
+    public double[] getImportances() {
+        double[] importances = _importances;
+        if (importances == null) {
+            importances = Visvalingam.effectiveAreas(getXs(), getYs());
+            _importances = importances;
+        }
+        return importances;
+    }
+
+    /**
+     * Récupère les niveaux de détail de la frontière, calculés une seule fois à partir de l'importance des sommets.
+     * Pour un seuil d'importance, ils donnent directement les index des sommets à dessiner.
+     *
+     * @return Niveaux de détail
+     */
+    public DetailLevels getDetailLevels() {
+        DetailLevels detailLevels = _detailLevels;
+        if (detailLevels == null) {
+            detailLevels = new DetailLevels(getImportances());
+            _detailLevels = detailLevels;
+        }
+        return detailLevels;
+    }
+
+    private PackedCoordinates packed() {
+        PackedCoordinates packed = _packed;
+        if (packed == null) {
+            packed = new PackedCoordinates(_pool, _vertices, _size);
+            _packed = packed;
+        }
+        return packed;
+    }
+
+    /**
+     * Retourne tous les points d'une frontière. Les points sont créés à la demande ; préférer getXs() et getYs().
+     *
+     * @return Liste non modifiable des points contenus par la frontière
      */
     public List<Point> getPoints() {
-        return _points;
+        return new AbstractList<Point>() {
+            @Override
+            public Point get(int index) {
+                return new Point(getXs()[index], getYs()[index]);
+            }
+
+            @Override
+            public int size() {
+                return _size;
+            }
+        };
     }
 
     /**
@@ -39,7 +193,7 @@ public class Boundary {
      * @return Le premier point d'une frontière
      */
     public Point getStartingPoint() {
-        return _points.get(0);
+        return _pool.getPoint(getStartingVertex());
     }
 
     /**
@@ -48,7 +202,15 @@ public class Boundary {
      * @return Le dernier point d'une frontière
      */
     public Point getEndingPoint() {
-        return _points.get(_points.size() - 1);
+        return _pool.getPoint(getEndingVertex());
+    }
+
+    public int getStartingVertex() {
+        return _vertices[0];
+    }
+
+    public int getEndingVertex() {
+        return _vertices[_size - 1];
     }
 
 }
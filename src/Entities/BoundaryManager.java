@@ -1,10 +1,13 @@
 package Entities;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 /**
@@ -14,82 +17,187 @@ import java.util.stream.Collectors;
 class BoundaryManager {
     private final List<Boundary> _boundaries = new ArrayList<>();
     private final PointSeeker _seeker;
+    private final VertexPool _pool;
     private final BoundPolygon[] _boundPolygons;
+    private final AdjacencyGraph _adjacency;
     
     public BoundaryManager(RawPolygon[] raws){
-        _seeker = new PointSeeker(raws);
-        
+        this(inSamePool(raws), null, false);
+    }
+
+    /**
+     * Construit les frontières à partir d'un index des sommets déjà rempli avec tous les polygones.
+     * Chaque frontière est découpée par le polygone de plus petit index qui la contient ; les autres polygones qui la
+     * partagent ne découpent que les portions de leur contour qui ne sont pas encore couvertes. Un polygone ne dépend
+     * donc que de ses voisins d'index inférieur : en parallèle, les polygones sont traités par vagues dont chacune ne
+     * contient que des polygones dont tous ces voisins ont été traités dans les vagues précédentes. Les frontières
+     * créées par chaque polygone sont ensuite rassemblées dans l'ordre des index, si bien que le résultat est
+     * identique à celui d'un traitement séquentiel.
+     *
+     * @param raws     Polygones, dans l'ordre de leur indexation, dont les sommets sont dans le même VertexPool
+     * @param seeker   Index des sommets des polygones, ou null pour le construire
+     * @param parallel Vrai pour découper les frontières de plusieurs polygones en même temps
+     */
+    BoundaryManager(RawPolygon[] raws, PointSeeker seeker, boolean parallel){
+        _seeker = seeker != null ? seeker : PointSeeker.indexing(raws);
+        _pool = raws.length > 0 ? raws[0].getPool() : new VertexPool();
+
+        int[][] lowerNeighbors = _seeker.getLowerNeighbors(raws.length);
+        CreatedBoundaries[] created = new CreatedBoundaries[raws.length];
+
+        if (parallel) {
+            for (int[] wave : getWaves(lowerNeighbors)) {
+                if (wave.length > 1) {
+                    ForkJoinPool.commonPool().invoke(new TopologyTask(raws, lowerNeighbors, created, wave, 0, wave.length));
+                } else {
+                    created[wave[0]] = makeBoundaries(raws, wave[0], lowerNeighbors, created);
+                }
+            }
+        } else {
+            for (int i = 0; i < raws.length; i++) {
+                created[i] = makeBoundaries(raws, i, lowerNeighbors, created);
+            }
+        }
+
         BoundPolygon[] bounds = new BoundPolygon[raws.length];
-        
-        
         for(int i=0 ; i<bounds.length ; i++){
             bounds[i] = new BoundPolygon();
         }
-        
-        Map<Integer,List<Boundary>> boundariesToBeAdd = new HashMap<>();
-        
-        
-        for(int i=0 ; i<raws.length ; i++){
-            
-            if(bounds[i].getBoundaries().isEmpty()){
-                makeBoundaries(raws,i,boundariesToBeAdd);
-            }
-            else{
-                List<int[]> extremities = getExtremitiesOfBoundariesToBeMade(bounds[i],raws[i]);
-                
-                if(extremities != null){
-                    for(int[] array : extremities){
-                        makeBoundaries(raws,i,array[0],array[1],boundariesToBeAdd);
-                    }
+        AdjacencyGraph.Builder adjacency = new AdjacencyGraph.Builder(raws.length);
+        for (CreatedBoundaries c : created) {
+            for (int j = 0; j < c.boundaries.size(); j++) {
+                Boundary b = c.boundaries.get(j);
+                List<Integer> owners = c.owners.get(j);
+                _boundaries.add(b);
+                for (int polygonIndex : owners) {
+                    bounds[polygonIndex].getBoundaries().add(b);
+                }
+                if (owners.size() > 1) {
+                    adjacency.addBoundary(owners, b.getLength());
                 }
             }
-            
-            addCreatedBoundariesToPolygon(boundariesToBeAdd, bounds);
         }
 
         _boundPolygons = bounds;
+        _adjacency = adjacency.build();
     }
 
     public List<Boundary> getBoundaries() {
         return _boundaries;
     }
 
+    /**
+     * Ramène les sommets de tous les polygones dans le VertexPool du premier, afin que leurs numéros soient comparables
+     *
+     * @param raws Polygones
+     * @return Polygones utilisant tous le même VertexPool
+     */
+    private static RawPolygon[] inSamePool(RawPolygon[] raws) {
+        RawPolygon[] result = raws.clone();
+        for (int i = 1; i < result.length; i++) {
+            result[i] = result[i].inPool(result[0].getPool());
+        }
+        return result;
+    }
+
     public BoundPolygon[] getBoundPolygon() {
         return _boundPolygons;
     }
 
-    private void addCreatedBoundariesToPolygon(Map<Integer, List<Boundary>> boundariesToBeAdd, BoundPolygon[] bounds) {
-        int boundIndex;
-        List<Boundary> listeBoundaries;
+    /**
+     * Récupère le graphe d'adjacence des polygones, construit à partir des polygones partageant chaque frontière
+     *
+     * @return Graphe dont les numéros sont les index des polygones
+     */
+    public AdjacencyGraph getAdjacency() {
+        return _adjacency;
+    }
 
-        for (Entry<Integer, List<Boundary>> entry : boundariesToBeAdd.entrySet()) {
-            boundIndex = entry.getKey();
-            listeBoundaries = entry.getValue();
-            for (Boundary b : listeBoundaries) {
-                bounds[boundIndex].getBoundaries().add(b);
+    /**
+     * Répartit les polygones en vagues : un polygone est dans la vague suivant la dernière de ses voisins d'index inférieur
+     *
+     * @param lowerNeighbors Voisins d'index inférieur de chaque polygone
+     * @return Polygones de chaque vague, par index croissant
+     */
+    private static List<int[]> getWaves(int[][] lowerNeighbors) {
+        int[] wave = new int[lowerNeighbors.length];
+        int[] waveSizes = new int[lowerNeighbors.length + 1];
+        int nbWaves = 0;
+        for (int i = 0; i < lowerNeighbors.length; i++) {
+            for (int neighbor : lowerNeighbors[i]) {
+                wave[i] = Math.max(wave[i], wave[neighbor] + 1);
             }
+            waveSizes[wave[i]]++;
+            nbWaves = Math.max(nbWaves, wave[i] + 1);
+        }
+        List<int[]> waves = new ArrayList<>(nbWaves);
+        for (int w = 0; w < nbWaves; w++) {
+            waves.add(new int[waveSizes[w]]);
+        }
+        int[] filled = new int[nbWaves];
+        for (int i = 0; i < lowerNeighbors.length; i++) {
+            waves.get(wave[i])[filled[wave[i]]++] = i;
+        }
+        return waves;
+    }
+
+    /**
+     * Découpe les frontières d'un polygone qui n'ont pas encore été créées par ses voisins d'index inférieur
+     *
+     * @param raws            Polygones
+     * @param rawPolygonIndex Index du polygone
+     * @param lowerNeighbors  Voisins d'index inférieur de chaque polygone
+     * @param created         Frontières créées par chaque polygone déjà traité
+     * @return Frontières créées par ce polygone
+     */
+    private CreatedBoundaries makeBoundaries(RawPolygon[] raws, int rawPolygonIndex, int[][] lowerNeighbors, CreatedBoundaries[] created) {
+        CreatedBoundaries result = new CreatedBoundaries();
+        List<Boundary> existing = getExistingBoundaries(rawPolygonIndex, lowerNeighbors[rawPolygonIndex], created);
+
+        if(existing.isEmpty()){
+            makeBoundaries(raws, rawPolygonIndex, 0, raws[rawPolygonIndex].size() - 1, result);
         }
+        else{
+            List<int[]> extremities = getExtremitiesOfBoundariesToBeMade(existing, raws[rawPolygonIndex]);
 
-        boundariesToBeAdd.clear();
+            if(extremities != null){
+                for(int[] array : extremities){
+                    makeBoundaries(raws, rawPolygonIndex, array[0], array[1], result);
+                }
+            }
+        }
+        return result;
     }
 
-    private void makeBoundaries(RawPolygon[] raws, int rawPolygonIndex, Map<Integer, List<Boundary>> boundariesToBeAdd) {
-        makeBoundaries(raws, rawPolygonIndex, 0, raws[rawPolygonIndex].getPoints().size() - 1, boundariesToBeAdd);
+    /**
+     * Récupère les frontières d'un polygone créées par ses voisins d'index inférieur, dans l'ordre de leur création
+     */
+    private static List<Boundary> getExistingBoundaries(int polygonIndex, int[] lowerNeighbors, CreatedBoundaries[] created) {
+        List<Boundary> existing = new ArrayList<>();
+        for (int neighbor : lowerNeighbors) {
+            CreatedBoundaries c = created[neighbor];
+            for (int j = 0; j < c.boundaries.size(); j++) {
+                if (Collections.binarySearch(c.owners.get(j), polygonIndex) >= 0) {
+                    existing.add(c.boundaries.get(j));
+                }
+            }
+        }
+        return existing;
     }
 
-    private void makeBoundaries(RawPolygon[] raws, int rawPolygonIndex, int firstPointIndex, int lastPointIndex, Map<Integer, List<Boundary>> boundariesToBeAdd) {
+    private void makeBoundaries(RawPolygon[] raws, int rawPolygonIndex, int firstPointIndex, int lastPointIndex, CreatedBoundaries boundariesToBeAdd) {
         RawPolygon polygon = raws[rawPolygonIndex];
-        int nbPoints = polygon.getPoints().size();
+        int nbPoints = polygon.size();
 
-        Point previous_pt, current_pt, first_pt;
+        int previous_pt, current_pt, first_pt;
 
-        first_pt = polygon.getPoints().get(firstPointIndex);
+        first_pt = polygon.getVertex(firstPointIndex);
 
-        List<Integer> polyWithPreviousPt;
-        List<Integer> polyWithCurrentPt = getRegionsWhichContains(first_pt);
+        int polyWithPreviousPt;
+        int polyWithCurrentPt = _seeker.getContainingSet(first_pt);
 
         int nbPolyWithPreviousPt;
-        int nbPolyWithCurrentPt = polyWithCurrentPt.size();
+        int nbPolyWithCurrentPt = _seeker.getSetSize(polyWithCurrentPt);
 
         Boundary boundary_tmp = null;
 
@@ -99,40 +207,40 @@ class BoundaryManager {
         for(int i=(firstPointIndex+1)%nbPoints ; !_break; i = (i+1)%nbPoints){
 
             previous_pt = current_pt;
-            current_pt = polygon.getPoints().get(i);
+            current_pt = polygon.getVertex(i);
             
             if (i == lastPointIndex) {
                 _break = true;
             }            
             
-            if (current_pt.equals(previous_pt)) {
+            if (current_pt == previous_pt) {
                 continue;
             }
             
             polyWithPreviousPt = polyWithCurrentPt;
-            polyWithCurrentPt = getRegionsWhichContains(current_pt);
+            polyWithCurrentPt = _seeker.getContainingSet(current_pt);
             
             nbPolyWithPreviousPt = nbPolyWithCurrentPt;
-            nbPolyWithCurrentPt = polyWithCurrentPt.size();
+            nbPolyWithCurrentPt = _seeker.getSetSize(polyWithCurrentPt);
 
             int path;
             
             if (_break){
                 path=4;
 
-                if(nbPolyWithCurrentPt == nbPolyWithPreviousPt && isSame(polyWithCurrentPt, polyWithPreviousPt)){
+                if(polyWithCurrentPt == polyWithPreviousPt){
                     path = 1;
                 }
 
             } else if (nbPolyWithCurrentPt > nbPolyWithPreviousPt) {
-                if(isOneSubFromOther(polyWithCurrentPt,polyWithPreviousPt)){
+                if(_seeker.isSubset(polyWithPreviousPt, polyWithCurrentPt)){
                     path = 1;
                 }
                 else{
                     path = 2;
                 }
             } else if (nbPolyWithCurrentPt == nbPolyWithPreviousPt) {
-                if(isSame(polyWithPreviousPt,polyWithCurrentPt)){
+                if(polyWithPreviousPt == polyWithCurrentPt){
                     path = 3;
                 }
                 else{
@@ -164,89 +272,53 @@ class BoundaryManager {
         }
     }
 
-    private boolean isSame(List<Integer> la, List<Integer> lb) {
-        if (la.size() != lb.size()) {
-            return false;
-        }
-        for (int i : la) {
-            if (!(lb.contains(i))) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private boolean isOneSubFromOther(List<Integer> listA, List<Integer> listB) {
-        List<Integer> petite;
-        List<Integer> grande;
-        if (listA.size() < listB.size()) {
-            petite = listA;
-            grande = listB;
-        } else {
-            petite = listB;
-            grande = listA;
-        }
-
-        for (int i : petite) {
-            if (!(grande.contains(i))) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private List<Integer> getRegionsWhichContains(Point p) {
-        return _seeker.getContainingPolygon(p);
-    }
-
-    private Boundary startOrContinueBoundary(Boundary boundary_tmp, Point point) {
+    private Boundary startOrContinueBoundary(Boundary boundary_tmp, int vertex) {
         if (boundary_tmp == null) {
-            boundary_tmp = new Boundary();
+            boundary_tmp = new Boundary(_pool);
         }
-        boundary_tmp.getPoints().add(point);
+        boundary_tmp.add(vertex);
         return boundary_tmp;
     }
 
-    private Boundary finalizeBoundary(Boundary boundary_tmp, Point point, Map<Integer, List<Boundary>> boundariesToBeAdd, List<Integer> polygonsIndex) {
+    private Boundary finalizeBoundary(Boundary boundary_tmp, int vertex, CreatedBoundaries boundariesToBeAdd, int polygonsIndex) {
         if (boundary_tmp != null) {
-            boundary_tmp.getPoints().add(point);
-            for (int polygonIndex : polygonsIndex) {
-                if (boundariesToBeAdd.containsKey(polygonIndex)) {
-                    boundariesToBeAdd.get(polygonIndex).add(boundary_tmp);
-                } else {
-                    List<Boundary> list = new ArrayList<>();
-                    list.add(boundary_tmp);
-                    boundariesToBeAdd.put(polygonIndex, list);
-                }
-            }
-            _boundaries.add(boundary_tmp);
+            boundary_tmp.add(vertex);
+            boundariesToBeAdd.boundaries.add(boundary_tmp);
+            boundariesToBeAdd.owners.add(_seeker.getSetList(polygonsIndex));
         }
         return null;
     }
 
-    private List<int[]> getExtremitiesOfBoundariesToBeMade(BoundPolygon boundPoly, RawPolygon rawPoly) {
+    /**
+     * Cherche les portions du contour d'un polygone qui ne sont pas couvertes par ses frontières déjà créées.
+     * Le contour est parcouru une seule fois ; à chaque sommet, la première frontière restante qui y commence ou y
+     * finit est trouvée grâce aux listes de frontières par position, ce qui rend le découpage linéaire en nombre de
+     * sommets et de frontières.
+     *
+     * @param existing Frontières du polygone déjà créées, dans l'ordre de leur création
+     * @param rawPoly  Polygone
+     * @return Positions de début et de fin de chaque portion à découper, null si aucune frontière n'est sur le polygone
+     */
+    private List<int[]> getExtremitiesOfBoundariesToBeMade(List<Boundary> existing, RawPolygon rawPoly) {
         List<int[]> extremities = new ArrayList<>();
         
-        List<Boundary> remainingBoundaries = boundPoly.getBoundaries().stream().collect(Collectors.toList());
-        
-        int nbPoints = rawPoly.getPoints().size() - 1;
+        int nbPoints = rawPoly.size() - 1;
+        int nbBoundaries = existing.size();
 
-        int indexPoint;
         int indexBound = 0;
 
         Boundary firstBoundary;
         int indexOfFirstPointOfFirstBoundary;
 
         while(true){
-            if (indexBound >= remainingBoundaries.size()) {
+            if (indexBound >= nbBoundaries) {
                 return null;
             }
-            firstBoundary = remainingBoundaries.get(indexBound);
+            firstBoundary = existing.get(indexBound);
             indexBound++;
-            indexPoint = 0;
 
-            if(indexPoint < firstBoundary.getPoints().size()){
-                indexOfFirstPointOfFirstBoundary = rawPoly.getPoints().indexOf(firstBoundary.getPoints().get(indexPoint));
+            if(firstBoundary.size() > 0){
+                indexOfFirstPointOfFirstBoundary = rawPoly.indexOf(firstBoundary.getVertex(0));
                 if(indexOfFirstPointOfFirstBoundary != -1){
                     break;
                 }
@@ -255,53 +327,68 @@ class BoundaryManager {
         
         int currentPointIndex, lastPointIndex;
         
-        if(firstBoundary.getPoints().size() == 1){
+        if(firstBoundary.size() == 1){
             currentPointIndex = indexOfFirstPointOfFirstBoundary;
             lastPointIndex = indexOfFirstPointOfFirstBoundary;
         }
         else{
-            if(rawPoly.getPoints().get((indexOfFirstPointOfFirstBoundary+1)%nbPoints).equals(firstBoundary.getPoints().get(indexPoint+1))){
-                currentPointIndex = (indexOfFirstPointOfFirstBoundary + firstBoundary.getPoints().size() - 1) % nbPoints;
+            if(rawPoly.getVertex((indexOfFirstPointOfFirstBoundary+1)%nbPoints) == firstBoundary.getVertex(1)){
+                currentPointIndex = (indexOfFirstPointOfFirstBoundary + firstBoundary.size() - 1) % nbPoints;
                 lastPointIndex = indexOfFirstPointOfFirstBoundary;
             }
             else{
                 currentPointIndex = indexOfFirstPointOfFirstBoundary;
-                lastPointIndex = (indexOfFirstPointOfFirstBoundary - (firstBoundary.getPoints().size() - 1)) % nbPoints;
+                lastPointIndex = (indexOfFirstPointOfFirstBoundary - (firstBoundary.size() - 1)) % nbPoints;
                 if(lastPointIndex < 0){
                     lastPointIndex = nbPoints + lastPointIndex;
                 }
             }
         }
-        remainingBoundaries.remove(0);
+
+        // Comme auparavant, c'est la première frontière de la liste qui est écartée
+        boolean[] removed = new boolean[nbBoundaries];
+        removed[0] = true;
+        int remaining = nbBoundaries - 1;
+
+        // Extrémités des frontières restantes, chaînées par première position de leur sommet dans le polygone
+        // et par ordre de création ; l'entrée 2j (resp. 2j+1) est le début (resp. la fin) de la frontière j
+        int[] firstAtPosition = new int[nbPoints + 1];
+        Arrays.fill(firstAtPosition, -1);
+        int[] nextAtPosition = new int[2 * nbBoundaries];
+        for (int j = nbBoundaries - 1; j > 0; j--) {
+            Boundary b = existing.get(j);
+            linkExtremity(rawPoly.indexOf(b.getEndingVertex()), 2 * j + 1, firstAtPosition, nextAtPosition);
+            linkExtremity(rawPoly.indexOf(b.getStartingVertex()), 2 * j, firstAtPosition, nextAtPosition);
+        }
         
         int firstExtremity = currentPointIndex;
-        boolean newExtremity = false;
 
         do{
-            for(int i=0 ; i<remainingBoundaries.size() ; i++){
-                Boundary b = remainingBoundaries.get(i);
-                
-                Point currentPoint = rawPoly.getPoints().get(currentPointIndex);
-                boolean start = (currentPoint.equals(b.getStartingPoint()));
-                boolean end = (currentPoint.equals(b.getEndingPoint()));
-                if (start || end) {
+            boolean newExtremity = false;
+            if (remaining > 0) {
+                int position = rawPoly.indexOf(rawPoly.getVertex(currentPointIndex));
+                int entry = firstAtPosition[position];
+                while (entry != -1 && removed[entry >> 1]) {
+                    entry = nextAtPosition[entry];
+                }
+                firstAtPosition[position] = entry;
+
+                if (entry != -1) {
+                    Boundary b = existing.get(entry >> 1);
                     if (firstExtremity != currentPointIndex) {
                         extremities.add(new int[]{firstExtremity, currentPointIndex});
                     }
-                    currentPointIndex = (currentPointIndex + b.getPoints().size() - 1) % nbPoints;
-                    remainingBoundaries.remove(i);
+                    currentPointIndex = (currentPointIndex + b.size() - 1) % nbPoints;
+                    removed[entry >> 1] = true;
+                    remaining--;
                     firstExtremity = currentPointIndex;
                     newExtremity = true;
-                    break;
-                }
-                else{
-                    newExtremity = false;
                 }
             }
             if(!newExtremity){
                 currentPointIndex = (currentPointIndex+1) % nbPoints;
             }
-            if(remainingBoundaries.isEmpty()){
+            if(remaining == 0){
                 currentPointIndex = lastPointIndex;
             }
         }while(currentPointIndex != lastPointIndex);
@@ -314,94 +401,227 @@ class BoundaryManager {
         return extremities;
     }
 
-    private class PointSeeker {
-        private static final int ARRAY_SIZE = 1000;
-        private final Container[][] array = new Container[ARRAY_SIZE + 1][ARRAY_SIZE + 1];
-        private final double offsetX;
-        private final double offsetY;
-        private final double multiplicateurX;
-        private final double multiplicateurY;
-
-        public PointSeeker(RawPolygon[] raws) {
-            Point firstPoint = raws[0].getPoints().get(0);
-            Double minX = firstPoint.x;
-            Double maxX = firstPoint.x;
-            Double minY = firstPoint.y;
-            Double maxY = firstPoint.y;
-
-            for (RawPolygon raw : raws) {
-                for (Point p : raw.getPoints()) {
-                    if (p.x < minX) {
-                        minX = p.x;
-                    } else if (p.x > maxX) {
-                        maxX = p.x;
-                    }
+    private static void linkExtremity(int position, int entry, int[] firstAtPosition, int[] nextAtPosition) {
+        if (position != -1) {
+            nextAtPosition[entry] = firstAtPosition[position];
+            firstAtPosition[position] = entry;
+        }
+    }
 
-                    if (p.y < minY) {
-                        minY = p.y;
-                    } else if (p.y > maxY) {
-                        maxY = p.y;
-                    }
-                }
-            }
+    /**
+     * Frontières créées par un polygone, avec pour chacune les polygones qui la partagent
+     */
+    private static class CreatedBoundaries {
+        private final List<Boundary> boundaries = new ArrayList<>();
+        private final List<List<Integer>> owners = new ArrayList<>();
+    }
 
-            offsetX = 0 - minX;
-            offsetY = 0 - minY;
-            multiplicateurX = (maxX - minX) / ARRAY_SIZE;
-            multiplicateurY = (maxY - minY) / ARRAY_SIZE;
+    /**
+     * Tâche découpant les frontières des polygones d'une tranche [from, to) d'une vague
+     */
+    private class TopologyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final RawPolygon[] raws;
+        private final int[][] lowerNeighbors;
+        private final CreatedBoundaries[] created;
+        private final int[] wave;
+        private final int from;
+        private final int to;
+
+        TopologyTask(RawPolygon[] raws, int[][] lowerNeighbors, CreatedBoundaries[] created, int[] wave, int from, int to) {
+            this.raws = raws;
+            this.lowerNeighbors = lowerNeighbors;
+            this.created = created;
+            this.wave = wave;
+            this.from = from;
+            this.to = to;
+        }
 
-            for (int y = 0; y <= ARRAY_SIZE; y++) {
-                for (int x = 0; x <= ARRAY_SIZE; x++) {
-                    array[x][y] = new Container();
-                }
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                created[wave[from]] = makeBoundaries(raws, wave[from], lowerNeighbors, created);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TopologyTask(raws, lowerNeighbors, created, wave, from, middle),
+                        new TopologyTask(raws, lowerNeighbors, created, wave, middle, to));
             }
+        }
+    }
 
+    /**
+     * Index des sommets : pour chaque sommet, les polygones qui le contiennent.
+     * Les sommets étant numérotés par leur VertexPool, l'index est un simple tableau indexé par numéro de sommet.
+     * Chaque sommet ne garde que le numéro de l'ensemble de polygones qui le contient ; ces ensembles sont partagés
+     * par tous les sommets d'une même frontière, si bien que deux sommets de la même frontière renvoient la même liste.
+     */
+    static class PointSeeker {
+        private static final int INITIAL_CAPACITY = 1 << 12;
+        private static final int NONE = -1;
+        // Ensemble de polygones de chaque sommet, 0 (ensemble vide) pour un sommet non indexé
+        private int[] vertexSets = new int[INITIAL_CAPACITY];
+
+        // Ensembles de polygones, triés par index croissant ; l'ensemble 0 est vide
+        private final List<int[]> sets = new ArrayList<>();
+        private final List<List<Integer>> setLists = new ArrayList<>();
+        private final Map<List<Integer>, Integer> setIndexes = new HashMap<>();
+        // Dernier ajout de polygone à chaque ensemble et ensemble obtenu, pour ne pas recalculer les unions
+        private int[] transitionPolygon = new int[16];
+        private int[] transitionResult = new int[16];
+
+        /**
+         * Crée un index vide, afin de pouvoir y ajouter les polygones au fur et à mesure de leur lecture
+         */
+        PointSeeker() {
+            internSet(new int[0]);
+        }
+
+        /**
+         * Crée un index contenant les polygones donnés
+         *
+         * @param raws Polygones à indexer, dont les sommets sont dans le même VertexPool
+         * @return Index des sommets
+         */
+        static PointSeeker indexing(RawPolygon[] raws) {
+            PointSeeker seeker = new PointSeeker();
             for (int i = 0; i < raws.length; i++) {
-                for (Point p : raws[i].getPoints()) {
-                    array[indexX(p.x)][indexY(p.y)].add(p, i);
+                seeker.add(raws[i], i);
+            }
+            return seeker;
+        }
+
+        /**
+         * Ajoute les sommets d'un polygone à l'index. Les polygones doivent être ajoutés dans l'ordre de leur index.
+         *
+         * @param raw          Polygone
+         * @param polygonIndex Index du polygone
+         */
+        void add(RawPolygon raw, int polygonIndex) {
+            for (int i = 0; i < raw.size(); i++) {
+                int vertex = raw.getVertex(i);
+                if (vertex >= vertexSets.length) {
+                    vertexSets = Arrays.copyOf(vertexSets, Math.max(vertexSets.length * 2, vertex + 1));
                 }
+                vertexSets[vertex] = addPolygon(vertexSets[vertex], polygonIndex);
             }
         }
 
-        public List<Integer> getContainingPolygon(Point p) {
-            return array[indexX(p.x)][indexY(p.y)].get(p);
+        /**
+         * Récupère les polygones contenant un sommet
+         *
+         * @param vertex Numéro du sommet
+         * @return Index des polygones par ordre croissant, liste vide si le sommet n'est pas indexé. Ne pas modifier.
+         */
+        public List<Integer> getContainingPolygon(int vertex) {
+            return setLists.get(getContainingSet(vertex));
         }
 
-        private int indexX(double x) {
-            return (int) ((x + offsetX) / multiplicateurX);
+        /**
+         * Récupère le numéro de l'ensemble des polygones contenant un sommet. Deux sommets sont contenus par les mêmes
+         * polygones si et seulement si leurs ensembles ont le même numéro.
+         *
+         * @param vertex Numéro du sommet
+         * @return Numéro de l'ensemble, 0 (ensemble vide) si le sommet n'est pas indexé
+         */
+        int getContainingSet(int vertex) {
+            return vertex < vertexSets.length ? vertexSets[vertex] : 0;
         }
 
-        private int indexY(double y) {
-            return (int) ((y + offsetY) / multiplicateurY);
+        int getSetSize(int set) {
+            return sets.get(set).length;
         }
 
-        private class Container {
-            private final Map<Point, List<Integer>> map;
+        /**
+         * Récupère les polygones d'un ensemble
+         *
+         * @param set Numéro de l'ensemble
+         * @return Index des polygones par ordre croissant. Ne pas modifier.
+         */
+        List<Integer> getSetList(int set) {
+            return setLists.get(set);
+        }
 
-            public Container() {
-                map = new HashMap<>();
+        /**
+         * Indique si tous les polygones d'un ensemble sont dans un autre, en un seul parcours des deux ensembles triés
+         *
+         * @param subset   Numéro de l'ensemble supposé inclus
+         * @param superset Numéro de l'ensemble supposé contenant
+         * @return Vrai si le premier ensemble est inclus dans le second
+         */
+        boolean isSubset(int subset, int superset) {
+            int[] small = sets.get(subset);
+            int[] large = sets.get(superset);
+            int j = 0;
+            for (int polygon : small) {
+                while (j < large.length && large[j] < polygon) {
+                    j++;
+                }
+                if (j == large.length || large[j] != polygon) {
+                    return false;
+                }
+                j++;
             }
+            return true;
+        }
 
-            public void add(Point p, int polygonIndex) {
-                if (map.containsKey(p)) {
-                    List<Integer> list = map.get(p);
-                    if (!list.contains(polygonIndex)) {
-                        list.add(polygonIndex);
+        /**
+         * Récupère, pour chaque polygone, les polygones d'index inférieur avec lesquels il partage au moins un sommet
+         *
+         * @param polygonCount Nombre de polygones indexés
+         * @return Voisins d'index inférieur de chaque polygone, par ordre croissant
+         */
+        int[][] getLowerNeighbors(int polygonCount) {
+            List<List<Integer>> neighbors = new ArrayList<>(polygonCount);
+            for (int i = 0; i < polygonCount; i++) {
+                neighbors.add(new ArrayList<>());
+            }
+            for (int[] polygons : sets) {
+                for (int j = 1; j < polygons.length; j++) {
+                    for (int k = 0; k < j; k++) {
+                        neighbors.get(polygons[j]).add(polygons[k]);
                     }
-                } else {
-                    List<Integer> polygonsContainingPoint = new ArrayList<>();
-                    polygonsContainingPoint.add(polygonIndex);
-                    map.put(p, polygonsContainingPoint);
                 }
             }
+            int[][] result = new int[polygonCount][];
+            for (int i = 0; i < polygonCount; i++) {
+                result[i] = neighbors.get(i).stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+            }
+            return result;
+        }
 
-            public List<Integer> get(Point p) {
-                if (map.containsKey(p)) {
-                    return map.get(p);
-                } else {
-                    return null;
-                }
+        private int addPolygon(int set, int polygonIndex) {
+            int[] polygons = sets.get(set);
+            if (Arrays.binarySearch(polygons, polygonIndex) >= 0) {
+                return set;
+            }
+            if (transitionPolygon[set] == polygonIndex) {
+                return transitionResult[set];
+            }
+            int[] union = Arrays.copyOf(polygons, polygons.length + 1);
+            union[polygons.length] = polygonIndex;
+            Arrays.sort(union);
+            int result = internSet(union);
+            transitionPolygon[set] = polygonIndex;
+            transitionResult[set] = result;
+            return result;
+        }
+
+        private int internSet(int[] polygons) {
+            List<Integer> list = Collections.unmodifiableList(Arrays.stream(polygons).boxed().collect(Collectors.toList()));
+            Integer index = setIndexes.get(list);
+            if (index != null) {
+                return index;
+            }
+            int set = sets.size();
+            sets.add(polygons);
+            setLists.add(list);
+            setIndexes.put(list, set);
+            if (set >= transitionPolygon.length) {
+                transitionPolygon = Arrays.copyOf(transitionPolygon, set * 2);
+                transitionResult = Arrays.copyOf(transitionResult, set * 2);
             }
+            transitionPolygon[set] = NONE;
+            return set;
         }
     }
 }
\ No newline at end of file
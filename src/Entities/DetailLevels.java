@@ -0,0 +1,106 @@
+package Entities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Niveaux de détail d'une ligne, précalculés à partir de l'importance (aire effective) de ses sommets.
+ * Chaque niveau est la liste ordonnée des index des sommets d'importance au moins égale à son seuil. Les seuils candidats
+ * sont divisés par 2 d'un niveau à l'autre, mais un niveau n'est gardé que s'il contient nettement plus de sommets que
+ * le précédent : la taille des niveaux croît géométriquement, si bien qu'ils occupent en tout quelques fois le nombre de
+ * sommets. Choisir un niveau est une recherche dichotomique sur les seuils, et le niveau obtenu ne contient, à un
+ * facteur borné près, que les sommets à dessiner : l'affichage ne parcourt jamais les sommets écartés.
+ */
+public class DetailLevels {
+    private static final double THRESHOLD_RATIO = 2;
+    private static final double MIN_LEVEL_GROWTH = 1.5;
+    // Seuils par ordre décroissant : infini (extrémités seules) en premier, 0 (tous les sommets) en dernier
+    private final double[] _thresholds;
+    private final int[][] _levels;
+
+    /**
+     * Construit les niveaux de détail à partir de l'importance des sommets
+     *
+     * @param importances Importance de chaque sommet
+     */
+    DetailLevels(double[] importances) {
+        double[] sorted = importances.clone();
+        Arrays.sort(sorted);
+        double minArea = Double.POSITIVE_INFINITY;
+        double maxArea = 0;
+        for (double importance : sorted) {
+            if (importance > 0 && importance != Double.POSITIVE_INFINITY) {
+                minArea = Math.min(minArea, importance);
+                maxArea = Math.max(maxArea, importance);
+            }
+        }
+
+        List<Double> thresholds = new ArrayList<>();
+        thresholds.add(Double.POSITIVE_INFINITY);
+        int lastCount = count(sorted, Double.POSITIVE_INFINITY);
+        for (double threshold = maxArea; threshold > minArea; threshold /= THRESHOLD_RATIO) {
+            int count = count(sorted, threshold);
+            if (count >= lastCount * MIN_LEVEL_GROWTH) {
+                thresholds.add(threshold);
+                lastCount = count;
+            }
+        }
+        thresholds.add(0.0);
+
+        _thresholds = new double[thresholds.size()];
+        _levels = new int[thresholds.size()][];
+        for (int l = 0; l < _thresholds.length; l++) {
+            _thresholds[l] = thresholds.get(l);
+            _levels[l] = select(importances, _thresholds[l], count(sorted, _thresholds[l]));
+        }
+    }
+
+    /**
+     * Compte les sommets d'importance au moins égale à un seuil, dans les importances triées
+     */
+    private static int count(double[] sorted, double threshold) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < threshold) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return sorted.length - low;
+    }
+
+    private static int[] select(double[] importances, double threshold, int count) {
+        int[] level = new int[count];
+        for (int i = 0, j = 0; i < importances.length; i++) {
+            if (importances[i] >= threshold) {
+                level[j++] = i;
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Récupère le niveau le moins détaillé contenant tous les sommets d'importance au moins égale à une aire donnée
+     *
+     * @param minArea Importance minimale des sommets à garder
+     * @return Index des sommets gardés, dans l'ordre de la ligne, à ne pas modifier
+     */
+    public int[] select(double minArea) {
+        // Premier seuil inférieur ou égal à minArea, les seuils étant décroissants
+        int low = 0;
+        int high = _thresholds.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (_thresholds[middle] <= minArea) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return _levels[low];
+    }
+}
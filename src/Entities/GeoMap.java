@@ -11,7 +11,7 @@ public class GeoMap {
     private final double _width;
     private final double _height;
     private final RegionManager _manager;
-    private final List<Boundary> _simpleBoundaries;
+    private List<Boundary> _simpleBoundaries = null;
 
     /**
      * Constructeur complet
@@ -25,7 +25,8 @@ public class GeoMap {
         this._height = height;
         this._manager = manager;
 
-        this._simpleBoundaries = Geometry.getSimplifyBoundaries(manager.getBoundaries(), COEF_SIMPLIFY);
+        // Niveaux de détail calculés une fois pour toutes, afin que l'affichage n'ait plus qu'à en choisir un
+        manager.getBoundaries().parallelStream().forEach(Boundary::getDetailLevels);
     }
 
     /**
@@ -56,14 +57,36 @@ public class GeoMap {
     }
 
     /**
-     * Recupère l'ensemble des frontières simplifiées
+     * Retourne l'ensemble des frontières, dont les niveaux de détail sont déjà calculés
+     *
+     * @return Liste des frontières
+     */
+    public List<Boundary> getBoundaries() {
+        return _manager.getBoundaries();
+    }
+
+    /**
+     * Recupère l'ensemble des frontières simplifiées à un niveau fixe, calculées à la première demande.
+     * Pour l'affichage, préférer getBoundaries() et Boundary.getDetailLevels().
      *
      * @return Liste des frontières simplifiées
      */
-    public List<Boundary> getSimpleBoundaries() {
+    public synchronized List<Boundary> getSimpleBoundaries() {
+        if (_simpleBoundaries == null) {
+            _simpleBoundaries = Geometry.getSimplifyBoundaries(_manager.getBoundaries(), COEF_SIMPLIFY);
+        }
         return _simpleBoundaries;
     }
 
+    /**
+     * Retourne le graphe d'adjacence des régions
+     *
+     * @return Graphe d'adjacence, numéroté comme les régions
+     */
+    public AdjacencyGraph getAdjacency() {
+        return _manager.getAdjacency();
+    }
+
     public RegionManager getManager() {
         return _manager;
     }
@@ -1,8 +1,7 @@
 package Entities;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -16,7 +15,7 @@ class Geometry {
         RawPolygon larger = null;
         int maxPoints = -1;
         for (RawPolygon p : polygons) {
-            int nbPoints = p.getPoints().size();
+            int nbPoints = p.size();
             if (nbPoints > maxPoints) {
                 maxPoints = nbPoints;
                 larger = p;
@@ -33,26 +32,18 @@ class Geometry {
      */
     static public Point getCentreDeMasse(RawPolygon polygon) {
         double somme_X = 0, somme_Y = 0, somme_aire = 0;
-        Point pt0;
-        Point pt1 = null;
-        Point debut = null;
-        for (Point point : polygon.getPoints()) {
-            pt0 = pt1;
-            pt1 = point;
-            if (pt0 != null) {
-                somme_X += calculSommeX(pt0, pt1);
-                somme_Y += calculSommeY(pt0, pt1);
-                somme_aire += calculMembre2(pt0, pt1);
-            } else {
-                debut = pt1;
-            }
+        double[] xs = polygon.getXs();
+        double[] ys = polygon.getYs();
+        int n = xs.length;
+        for (int i = 1; i < n; i++) {
+            somme_X += calculSommeX(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+            somme_Y += calculSommeY(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+            somme_aire += calculMembre2(xs[i - 1], ys[i - 1], xs[i], ys[i]);
         }
-        pt0 = pt1;
-        pt1 = debut;
-        if (pt1 != null) {
-            somme_X += calculSommeX(pt0, pt1);
-            somme_Y += calculSommeY(pt0, pt1);
-            somme_aire += calculMembre2(pt0, pt1);
+        if (n > 0) {
+            somme_X += calculSommeX(xs[n - 1], ys[n - 1], xs[0], ys[0]);
+            somme_Y += calculSommeY(xs[n - 1], ys[n - 1], xs[0], ys[0]);
+            somme_aire += calculMembre2(xs[n - 1], ys[n - 1], xs[0], ys[0]);
         }
 
         double aire = 0.5 * somme_aire;
@@ -62,16 +53,16 @@ class Geometry {
         return new Point(xG, yG);
     }
 
-    static private double calculSommeX(Point pt0, Point pt1) {
-        return (pt0.x + pt1.x) * calculMembre2(pt0, pt1);
+    static private double calculSommeX(double x0, double y0, double x1, double y1) {
+        return (x0 + x1) * calculMembre2(x0, y0, x1, y1);
     }
 
-    static private double calculSommeY(Point pt0, Point pt1) {
-        return (pt0.y + pt1.y) * calculMembre2(pt0, pt1);
+    static private double calculSommeY(double x0, double y0, double x1, double y1) {
+        return (y0 + y1) * calculMembre2(x0, y0, x1, y1);
     }
 
-    static private double calculMembre2(Point pt0, Point pt1) {
-        return pt1.x * pt0.y - pt0.x * pt1.y;
+    static private double calculMembre2(double x0, double y0, double x1, double y1) {
+        return x1 * y0 - x0 * y1;
     }
 
     /**
@@ -82,33 +73,11 @@ class Geometry {
      * @return Distance entre le point A et le point B
      */
     public static double distanceBetween2Points(Point pointA, Point pointB) {
-        return Math.sqrt((Math.pow(pointB.x - pointA.x, 2) + Math.pow(pointB.y - pointA.y, 2)));
+        return distanceBetween2Points(pointA.x, pointA.y, pointB.x, pointB.y);
     }
 
-    /**
-     * Calcule la distance entre deux points contenus dans une frontière en suivant celle-ci
-     *
-     * @param boundary   Frontière contenant les deux points
-     * @param firstIndex Index du premier point dans la frontière
-     * @param lastIndex  Index du dernier point dans la frontière
-     * @return Distance entre deux points suivant la frontière
-     */
-    private static double distanceBetween2PointsAlongBoundary(Boundary boundary, int firstIndex, int lastIndex) {
-        if (firstIndex > lastIndex) {
-            int tmp = lastIndex;
-            lastIndex = firstIndex;
-            firstIndex = tmp;
-        }
-
-        double somme_dist = 0;
-        Point ptA;
-        Point ptB = boundary.getPoints().get(firstIndex);
-        for (int i = firstIndex + 1; i <= lastIndex; i++) {
-            ptA = ptB;
-            ptB = boundary.getPoints().get(i);
-            somme_dist += Geometry.distanceBetween2Points(ptA, ptB);
-        }
-        return somme_dist;
+    static double distanceBetween2Points(double xA, double yA, double xB, double yB) {
+        return Math.sqrt((Math.pow(xB - xA, 2) + Math.pow(yB - yA, 2)));
     }
 
     /**
@@ -129,74 +98,101 @@ class Geometry {
     /**
      * Simplifie une liste de frontières.
      * Les frontières simplifiés contiennent moins de points.
+     * Les frontières sont indépendantes : elles sont simplifiées en parallèle, et le résultat garde leur ordre.
      *
      * @param boundaries
      * @param coef       TODO : à arranger
      * @return Frontières simplifiées
      */
     public static List<Boundary> getSimplifyBoundaries(List<Boundary> boundaries, double coef) {
-        return boundaries.stream().map(b -> simplifyBoundary(b, coef)).collect(Collectors.toList());
+        return boundaries.parallelStream().map(b -> simplifyBoundary(b, coef)).collect(Collectors.toList());
     }
 
+    /**
+     * Simplifie une frontière à la manière de Douglas-Peucker : une portion est découpée au point le plus éloigné
+     * (distance perpendiculaire) de la corde qui la sous-tend, jusqu'à ce que chaque portion mesure, le long de la
+     * frontière, moins que coef. Les portions à traiter sont gardées dans une pile explicite et les points conservés
+     * dans un masque ; la longueur d'une portion est lue dans les longueurs cumulées, calculées une seule fois.
+     *
+     * @param b    Frontière
+     * @param coef Longueur le long de la frontière en dessous de laquelle une portion n'est plus découpée
+     * @return Frontière simplifiée, partageant les sommets de la frontière d'origine
+     */
     private static Boundary simplifyBoundary(Boundary b, double coef) {
-        TreeMap<Integer, Point> simplifiedPoints = simplify(b, 0, b.getPoints().size() - 1, coef);
-        List<Point> points = simplifiedPoints.values().stream().collect(Collectors.toList());
-        return new Boundary(points);
-    }
-
-    private static TreeMap<Integer, Point> simplify(Boundary boundary, int firstIndex, int lastIndex, double coef) {
-        if (firstIndex + 1 == lastIndex || Geometry.distanceBetween2PointsAlongBoundary(boundary, firstIndex, lastIndex) < coef) {
-            TreeMap<Integer, Point> includedPoint = new TreeMap<>();
-            includedPoint.put(firstIndex, boundary.getPoints().get(firstIndex));
-            includedPoint.put(lastIndex, boundary.getPoints().get(lastIndex));
-            return includedPoint;
+        double[] xs = b.getXs();
+        double[] ys = b.getYs();
+        int n = xs.length;
+
+        double[] cumulatedLengths = new double[n];
+        for (int i = 1; i < n; i++) {
+            double dx = xs[i] - xs[i - 1];
+            double dy = ys[i] - ys[i - 1];
+            cumulatedLengths[i] = cumulatedLengths[i - 1] + Math.sqrt(dx * dx + dy * dy);
         }
 
-        int indexFurthestPoint = indexOfTheFurthestPoint(boundary, firstIndex, lastIndex);
-        TreeMap<Integer, Point> firstPart = simplify(boundary, firstIndex, indexFurthestPoint, coef);
-        TreeMap<Integer, Point> secondPart = simplify(boundary, indexFurthestPoint, lastIndex, coef);
+        boolean[] keep = new boolean[n];
+        keep[0] = true;
+        keep[n - 1] = true;
+        int kept = n > 1 ? 2 : n;
+
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = n - 1;
+        while (top > 0) {
+            int lastIndex = stack[--top];
+            int firstIndex = stack[--top];
+            if (firstIndex + 1 == lastIndex || cumulatedLengths[lastIndex] - cumulatedLengths[firstIndex] < coef) {
+                continue;
+            }
 
-        return mergeTreeMap(firstPart, secondPart);
-    }
+            int indexFurthestPoint = indexOfTheFurthestPoint(xs, ys, firstIndex, lastIndex);
+            keep[indexFurthestPoint] = true;
+            kept++;
 
-    private static TreeMap<Integer, Point> mergeTreeMap(TreeMap<Integer, Point> treeA, TreeMap<Integer, Point> treeB) {
-        for (Entry<Integer, Point> entry : treeB.entrySet()) {
-            int index = entry.getKey();
-            Point pt = entry.getValue();
-            if (!treeA.containsKey(index)) {
-                treeA.put(index, pt);
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
             }
+            stack[top++] = indexFurthestPoint;
+            stack[top++] = lastIndex;
+            stack[top++] = firstIndex;
+            stack[top++] = indexFurthestPoint;
         }
-        return treeA;
-    }
 
-    private static int indexOfTheFurthestPoint(Boundary boundary, int firstIndex, int lastIndex) {
-        Point firstPoint = boundary.getPoints().get(firstIndex);
-        Point lastPoint = boundary.getPoints().get(lastIndex);
-        double longueurBase = Geometry.distanceBetween2Points(firstPoint, lastPoint);
+        int[] vertices = new int[kept];
+        for (int i = 0, j = 0; i < n; i++) {
+            if (keep[i]) {
+                vertices[j++] = b.getVertex(i);
+            }
+        }
+        return new Boundary(b.getPool(), vertices);
+    }
 
-        int indexFurthestPoint = -1;
-        double hauteurTriangleFurthestPoint = -1;
+    /**
+     * Cherche le point d'une portion de frontière le plus éloigné de la droite passant par ses extrémités,
+     * ou du point de départ si les extrémités sont confondues
+     */
+    private static int indexOfTheFurthestPoint(double[] xs, double[] ys, int firstIndex, int lastIndex) {
+        double x0 = xs[firstIndex];
+        double y0 = ys[firstIndex];
+        double dx = xs[lastIndex] - x0;
+        double dy = ys[lastIndex] - y0;
+        boolean closed = dx == 0 && dy == 0;
 
-        Point pointTmp;
-        double distA, distB, aire, hauteur;
+        int indexFurthestPoint = firstIndex + 1;
+        double furthest = -1;
 
         for (int i = firstIndex + 1; i < lastIndex; i++) {
-            pointTmp = boundary.getPoints().get(i);
-            distA = Geometry.distanceBetween2Points(firstPoint, pointTmp);
-            distB = Geometry.distanceBetween2Points(pointTmp, lastPoint);
-            aire = longueurBase + distA + distB;
-            hauteur = hauteurTriangle(longueurBase, aire);
-            if (hauteur > hauteurTriangleFurthestPoint) {
-                hauteurTriangleFurthestPoint = hauteur;
+            double px = xs[i] - x0;
+            double py = ys[i] - y0;
+            // La longueur de la corde étant commune à tous les points, comparer l'aire du parallélogramme suffit
+            double distance = closed ? px * px + py * py : Math.abs(dx * py - dy * px);
+            if (distance > furthest) {
+                furthest = distance;
                 indexFurthestPoint = i;
             }
         }
         return indexFurthestPoint;
     }
 
-    private static double hauteurTriangle(double longueurBase, double aire) {
-        return (2 * aire) / longueurBase;
-    }
-
 }
@@ -0,0 +1,46 @@
+package Entities;
+
+/**
+ * Coordonnées d'une suite de sommets recopiées dans des tableaux contigus, avec leur boîte englobante et la longueur
+ * de la ligne qu'ils forment. Calculées une seule fois, elles ne sont plus modifiées.
+ */
+class PackedCoordinates {
+    final double[] xs;
+    final double[] ys;
+    final double minX;
+    final double minY;
+    final double maxX;
+    final double maxY;
+    final double length;
+
+    /**
+     * Recopie les coordonnées d'une suite de sommets
+     *
+     * @param pool     Ensemble contenant les sommets
+     * @param vertices Numéros des sommets
+     * @param size     Nombre de sommets à prendre
+     */
+    PackedCoordinates(VertexPool pool, int[] vertices, int size) {
+        xs = new double[size];
+        ys = new double[size];
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        double length = 0;
+        for (int i = 0; i < size; i++) {
+            xs[i] = pool.getX(vertices[i]);
+            ys[i] = pool.getY(vertices[i]);
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+            if (i > 0) {
+                length += Geometry.distanceBetween2Points(xs[i - 1], ys[i - 1], xs[i], ys[i]);
+            }
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.length = length;
+    }
+}
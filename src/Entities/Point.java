@@ -25,7 +25,9 @@ public class Point {
 
     @Override
     public int hashCode() {
-        return (int) ((x * 4957.0 + y) * 13.0);
+        // + 0.0 ramène -0.0 à 0.0, égaux pour equals
+        long h = Double.doubleToLongBits(x + 0.0) * 31 + Double.doubleToLongBits(y + 0.0);
+        return (int) (h ^ (h >>> 32));
     }
 
 }
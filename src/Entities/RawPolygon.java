@@ -1,16 +1,208 @@
 package Entities;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
+ * Polygone décrit par la suite des numéros de ses sommets dans un VertexPool
+ *
  * @author Théophile
  */
 public class RawPolygon {
-    private final List<Point> _points = new ArrayList<>();
+    private final VertexPool _pool;
+    private final int[] _vertices;
+    // Coordonnées recopiées à la première demande
+    private volatile PackedCoordinates _packed;
+    // Table de hachage des positions, indexée par numéro de sommet, construite à la première recherche
+    private volatile int[] _positions;
 
+    /**
+     * Construit un polygone à partir des numéros de ses sommets
+     *
+     * @param pool     Ensemble contenant les sommets
+     * @param vertices Numéros des sommets
+     */
+    public RawPolygon(VertexPool pool, int[] vertices) {
+        _pool = pool;
+        _vertices = vertices;
+    }
+
+    /**
+     * Construit un polygone à partir de coordonnées stockées en colonnes, en ajoutant ses sommets à un VertexPool
+     *
+     * @param pool    Ensemble recevant les sommets
+     * @param xs      Coordonnées en X
+     * @param ys      Coordonnées en Y
+     * @param from    Index du premier point à prendre
+     * @param to      Index suivant le dernier point à prendre
+     * @param offsetX Valeur soustraite à chaque X
+     * @param offsetY Valeur soustraite à chaque Y
+     */
+    public RawPolygon(VertexPool pool, double[] xs, double[] ys, int from, int to, double offsetX, double offsetY) {
+        this(pool, pool.intern(xs, ys, from, to, offsetX, offsetY));
+    }
+
+    public VertexPool getPool() {
+        return _pool;
+    }
+
+    /**
+     * Indique le nombre de sommets du polygone
+     *
+     * @return Nombre de sommets
+     */
+    public int size() {
+        return _vertices.length;
+    }
+
+    /**
+     * Récupère le numéro d'un sommet
+     *
+     * @param i Index du sommet dans le polygone
+     * @return Numéro du sommet dans le VertexPool
+     */
+    public int getVertex(int i) {
+        return _vertices[i];
+    }
+
+    public double getX(int i) {
+        return getXs()[i];
+    }
+
+    public double getY(int i) {
+        return getYs()[i];
+    }
+
+    /**
+     * Récupère les coordonnées en X de tous les sommets, dans un tableau contigu calculé une seule fois
+     *
+     * @return Coordonnées en X, à ne pas modifier
+     */
+    public double[] getXs() {
+        return packed().xs;
+    }
+
+    /**
+     * Récupère les coordonnées en Y de tous les sommets, dans un tableau contigu calculé une seule fois
+     *
+     * @return Coordonnées en Y, à ne pas modifier
+     */
+    public double[] getYs() {
+        return packed().ys;
+    }
+
+    public double getMinX() {
+        return packed().minX;
+    }
+
+    public double getMinY() {
+        return packed().minY;
+    }
+
+    public double getMaxX() {
+        return packed().maxX;
+    }
+
+    public double getMaxY() {
+        return packed().maxY;
+    }
+
+    /**
+     * Calcule la longueur de la ligne passant par tous les sommets, dans l'ordre
+     *
+     * @return Longueur
+     */
+    public double getLength() {
+        return packed().length;
+    }
+
+    private PackedCoordinates packed() {
+        PackedCoordinates packed = _packed;
+        if (packed == null) {
+            packed = new PackedCoordinates(_pool, _vertices, _vertices.length);
+            _packed = packed;
+        }
+        return packed;
+    }
+
+    /**
+     * Récupère les points du polygone. Les points sont créés à la demande ; préférer getXs() et getYs().
+     *
+     * @return Liste non modifiable des points
+     */
     public List<Point> getPoints() {
-        return _points;
+        return new AbstractList<Point>() {
+            @Override
+            public Point get(int index) {
+                return new Point(getXs()[index], getYs()[index]);
+            }
+
+            @Override
+            public int size() {
+                return _vertices.length;
+            }
+        };
+    }
+
+    /**
+     * Cherche la première position d'un sommet dans le polygone, en temps constant
+     *
+     * @param vertex Numéro du sommet
+     * @return Index du sommet dans le polygone, -1 s'il n'y est pas
+     */
+    int indexOf(int vertex) {
+        int[] positions = positions();
+        int mask = positions.length - 1;
+        for (int slot = hash(vertex) & mask; positions[slot] != -1; slot = (slot + 1) & mask) {
+            if (_vertices[positions[slot]] == vertex) {
+                return positions[slot];
+            }
+        }
+        return -1;
+    }
+
+    private int[] positions() {
+        int[] positions = _positions;
+        if (positions == null) {
+            positions = new int[Integer.highestOneBit(Math.max(1, _vertices.length)) * 4];
+            Arrays.fill(positions, -1);
+            int mask = positions.length - 1;
+            for (int i = 0; i < _vertices.length; i++) {
+                int slot = hash(_vertices[i]) & mask;
+                while (positions[slot] != -1 && _vertices[positions[slot]] != _vertices[i]) {
+                    slot = (slot + 1) & mask;
+                }
+                // Seule la première position d'un sommet répété est gardée
+                if (positions[slot] == -1) {
+                    positions[slot] = i;
+                }
+            }
+            _positions = positions;
+        }
+        return positions;
+    }
+
+    private static int hash(int vertex) {
+        int h = vertex * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Récupère ce polygone avec ses sommets dans un VertexPool donné
+     *
+     * @param pool Ensemble de sommets
+     * @return Ce polygone s'il utilise déjà cet ensemble, sinon une copie dont les sommets y ont été ajoutés
+     */
+    RawPolygon inPool(VertexPool pool) {
+        if (pool == _pool) {
+            return this;
+        }
+        int[] vertices = new int[_vertices.length];
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = pool.intern(_pool.getX(_vertices[i]), _pool.getY(_vertices[i]));
+        }
+        return new RawPolygon(pool, vertices);
     }
 
 }
@@ -1,8 +1,7 @@
 package Entities;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -11,12 +10,12 @@ import java.util.Map;
  * @author Théophile
  */
 public class Region {
-    private final Map<String, String> infos = new HashMap<>();
+    private final Map<String, String> infos = new LinkedHashMap<>();
     private final BoundPolygon _boundMainPolygon;
     private final Point _center;
-    // equals et hashcode peut-être à redéfinir
-    private final Map<Region, List<Boundary>> _neighbors = new HashMap<>();
     private String _defaultField = null;
+    private int _id = -1;
+    private AdjacencyGraph _adjacency = null;
 
     // Constructeur à modifier
     public Region(RawPolygon rawMainPolygon, BoundPolygon boundMainPolygon) {
@@ -53,6 +52,25 @@ public class Region {
         infos.put(field, value);
     }
 
+    /**
+     * Récupère une donnée sur cette région
+     *
+     * @param field Champ / Nom de la colonne
+     * @return Valeur de la donnée, ou null si elle n'est pas renseignée
+     */
+    public String getInfo(String field) {
+        return infos.get(field);
+    }
+
+    /**
+     * Récupère toutes les données sur cette région, dans l'ordre où elles ont été renseignées
+     *
+     * @return Données de la région, non modifiables
+     */
+    public Map<String, String> getInfos() {
+        return Collections.unmodifiableMap(infos);
+    }
+
     /**
      * Renseigne quel champ doit contenir le nom de la région.
      * Ce champ est nommé "champ par défaut".
@@ -102,22 +120,37 @@ public class Region {
     }
 
     /**
-     * Ajoute un voisin à cette région en spécifiant la frontière commune.
-     * Si la région "neighbor" a déjà été spécifiée comme voisine de celle-ci,
-     * la frontière "commonBoundary" est ajoutée à la liste des frontières communes entre ces deux régions.
+     * Indique le numéro de la région dans son RegionManager, qui est aussi son numéro dans le graphe d'adjacence
+     *
+     * @return Numéro de la région, -1 si elle n'appartient à aucun RegionManager
+     */
+    public int getId() {
+        return _id;
+    }
+
+    /**
+     * Rattache la région à son RegionManager.
      * L'utilisation de cette méthode est réservée à la classe RegionManager
      *
-     * @param neighbor       Région voisine/adjacente à celle-ci
-     * @param commonBoundary Frontière commune
+     * @param id        Numéro de la région
+     * @param adjacency Graphe d'adjacence des régions du manager
      */
-    void addNeighbor(Region neighbor, Boundary commonBoundary) {
-        if (!_neighbors.containsKey(neighbor)) {
-            _neighbors.put(neighbor, new LinkedList<>());
-        }
-        _neighbors.get(neighbor).add(commonBoundary);
+    void setAdjacency(int id, AdjacencyGraph adjacency) {
+        _id = id;
+        _adjacency = adjacency;
     }
 
+    /**
+     * Indique si cette région partage une frontière avec une autre.
+     * Pour deux régions du même RegionManager, la réponse est lue dans le graphe d'adjacence en temps constant.
+     *
+     * @param r Autre région
+     * @return Vrai si les régions sont voisines
+     */
     public boolean IsCommunBoundary(Region r) {
+        if (_adjacency != null && r != this && _adjacency == r._adjacency) {
+            return _adjacency.areAdjacent(_id, r._id);
+        }
         for (Boundary b : getBoundMainPolygon().getBoundaries()) {
             for (Boundary b2 : r.getBoundMainPolygon().getBoundaries()) {
                 if (b == b2) return true;
@@ -0,0 +1,83 @@
+package Entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index des régions selon les valeurs de leurs informations (colonnes du .dbf).
+ * Une table de hachage est construite pour chaque champ lors de sa première interrogation, puis réutilisée :
+ * la recherche d'une valeur se fait ensuite en temps constant. Un champ peut contenir plusieurs fois la même valeur.
+ * Les informations des régions ne doivent plus changer une fois l'index utilisé.
+ */
+public class RegionIndex {
+    private final List<Region> _regions;
+    private final Map<String, Map<String, List<Region>>> _indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Crée un index sur des régions
+     *
+     * @param regions Régions à indexer
+     */
+    public RegionIndex(List<Region> regions) {
+        _regions = regions;
+    }
+
+    /**
+     * Récupère les régions dont un champ a une valeur donnée
+     *
+     * @param field Nom du champ
+     * @param value Valeur recherchée
+     * @return Régions correspondantes, dans l'ordre des régions, ou une liste vide
+     */
+    public List<Region> regionsWhere(String field, String value) {
+        List<Region> regions = getIndex(field).get(value);
+        return regions != null ? regions : Collections.emptyList();
+    }
+
+    /**
+     * Récupère la première région dont un champ a une valeur donnée
+     *
+     * @param field Nom du champ
+     * @param value Valeur recherchée
+     * @return Première région correspondante, ou null
+     */
+    public Region regionWhere(String field, String value) {
+        List<Region> regions = getIndex(field).get(value);
+        return regions != null ? regions.get(0) : null;
+    }
+
+    /**
+     * Indique si chaque valeur d'un champ n'appartient qu'à une seule région
+     *
+     * @param field Nom du champ
+     * @return Vrai si le champ identifie les régions
+     */
+    public boolean isUnique(String field) {
+        Map<String, List<Region>> index = getIndex(field);
+        for (List<Region> regions : index.values()) {
+            if (regions.size() > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, List<Region>> getIndex(String field) {
+        return _indexes.computeIfAbsent(field, this::buildIndex);
+    }
+
+    private Map<String, List<Region>> buildIndex(String field) {
+        Map<String, List<Region>> index = new HashMap<>();
+        for (Region r : _regions) {
+            String value = r.getInfo(field);
+            if (value != null) {
+                index.computeIfAbsent(value, v -> new ArrayList<>(1)).add(r);
+            }
+        }
+        return index;
+    }
+}
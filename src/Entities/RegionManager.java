@@ -1,8 +1,6 @@
 package Entities;
 
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -14,6 +12,8 @@ import java.util.List;
 public class RegionManager {
     private final BoundaryManager _bm;
     private final List<Region> _regions = new ArrayList<>();
+    private final RegionIndex _index = new RegionIndex(_regions);
+    private String _defaultField = null;
 
     /**
      * Créer un manager à partir d'un ensemble de liste de RawPolygon
@@ -30,14 +30,29 @@ public class RegionManager {
         }
 
         _bm = new BoundaryManager(rawMainPolygons);
+        createRegions(rawMainPolygons);
+    }
+
+    /**
+     * Créer un manager à partir des polygones principaux des régions et des frontières déjà calculées
+     *
+     * @param rawMainPolygons Polygone principal de chaque région
+     * @param bm              Frontières construites à partir de ces polygones
+     */
+    RegionManager(RawPolygon[] rawMainPolygons, BoundaryManager bm) {
+        _bm = bm;
+        createRegions(rawMainPolygons);
+    }
+
+    private void createRegions(RawPolygon[] rawMainPolygons) {
+        int nbRegions = rawMainPolygons.length;
         BoundPolygon[] boundMainPolygons = _bm.getBoundPolygon();
 
         for (int i = 0; i < nbRegions; i++) {
             Region r = new Region(rawMainPolygons[i], boundMainPolygons[i]);
+            r.setAdjacency(i, _bm.getAdjacency());
             _regions.add(r);
         }
-
-        calculateNeighbors(_regions, _bm.getBoundaries());
     }
 
     /**
@@ -59,39 +74,28 @@ public class RegionManager {
     }
 
     /**
-     * Calcul et intégre les voisins dans les régions à partir de celle-ci et de l'ensemble des frontières.
+     * Récupère le graphe d'adjacence des régions, calculé avec les frontières.
+     * Les numéros du graphe sont ceux des régions, donnés par Region.getId().
      *
-     * @param regions       Liste des régions dont on veut calculer les voisins
-     * @param allBoundaries Ensemble des frontières de toutes les régions
+     * @return Graphe d'adjacence
      */
-    private void calculateNeighbors(List<Region> regions, List<Boundary> allBoundaries) {
-        List<Region> involvedRegions = new LinkedList<>();
-        BoundPolygon currentPoly;
-
-        for (Boundary b : allBoundaries) {
-            involvedRegions.clear();
-
-            for (Region r : regions) {
-                currentPoly = r.getBoundMainPolygon();
-                if (currentPoly.getBoundaries().contains(b)) {
-                    involvedRegions.add(r);
-                }
-            }
+    public AdjacencyGraph getAdjacency() {
+        return _bm.getAdjacency();
+    }
 
-            Iterator<Region> it = involvedRegions.iterator();
-            switch (involvedRegions.size()) {
-                case 1:
-                    it.next().addNeighbor(null, b);
-                    break;
-                case 2:
-                    Region r1 = it.next(), r2 = it.next();
-                    r1.addNeighbor(r2, b);
-                    r2.addNeighbor(r1, b);
-                    break;
-                default:
-                    break;
-            }
+    /**
+     * Récupère les régions partageant au moins une frontière avec une région
+     *
+     * @param r Région
+     * @return Régions voisines, par numéro croissant
+     */
+    public List<Region> getNeighbors(Region r) {
+        AdjacencyGraph adjacency = getAdjacency();
+        List<Region> neighbors = new ArrayList<>(adjacency.getDegree(r.getId()));
+        for (int k = 0; k < adjacency.getDegree(r.getId()); k++) {
+            neighbors.add(_regions.get(adjacency.getNeighbor(r.getId(), k)));
         }
+        return neighbors;
     }
 
     /**
@@ -100,8 +104,31 @@ public class RegionManager {
      * @param defaultField Nom de la colonne principal
      */
     public void setRegionsName(String defaultField) {
+        _defaultField = defaultField;
         for (Region r : _regions) {
             r.setDefaultField(defaultField);
         }
     }
+
+    /**
+     * Récupère l'index des régions selon leurs informations, construit une seule fois par chargement
+     *
+     * @return Index des régions
+     */
+    public RegionIndex getIndex() {
+        return _index;
+    }
+
+    /**
+     * Récupère la première région portant un nom donné, sans parcourir toutes les régions
+     *
+     * @param name Nom de la région, soit la valeur de la colonne par défaut
+     * @return Région portant ce nom, ou null
+     */
+    public Region getRegionByName(String name) {
+        if (_defaultField == null) {
+            return "".equals(name) && !_regions.isEmpty() ? _regions.get(0) : null;
+        }
+        return _index.regionWhere(_defaultField, name);
+    }
 }
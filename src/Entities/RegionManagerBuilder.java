@@ -0,0 +1,65 @@
+package Entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Construit un RegionManager à partir de régions ajoutées une à une, au fur et à mesure de leur lecture.
+ * Le polygone principal de chaque région est choisi et ses sommets sont indexés dès son ajout ;
+ * seules les frontières, qui ont besoin de toutes les régions, sont calculées par build().
+ */
+public class RegionManagerBuilder {
+    private final List<RawPolygon> _mainPolygons = new ArrayList<>();
+    private final BoundaryManager.PointSeeker _seeker;
+    private final boolean _parallel;
+
+    /**
+     * Crée un constructeur de régions vide, calculant les frontières séquentiellement
+     */
+    public RegionManagerBuilder() {
+        this(false);
+    }
+
+    /**
+     * Crée un constructeur de régions vide
+     *
+     * @param parallel Vrai pour calculer les frontières de plusieurs régions en parallèle
+     */
+    public RegionManagerBuilder(boolean parallel) {
+        _seeker = new BoundaryManager.PointSeeker();
+        _parallel = parallel;
+    }
+
+    /**
+     * Ajoute une région à la suite des précédentes
+     *
+     * @param rawRegion Polygones de la région
+     */
+    public void addRegion(List<RawPolygon> rawRegion) {
+        RawPolygon mainPolygon = Geometry.getMainPolygon(rawRegion);
+        if (!_mainPolygons.isEmpty()) {
+            mainPolygon = mainPolygon.inPool(_mainPolygons.get(0).getPool());
+        }
+        _seeker.add(mainPolygon, _mainPolygons.size());
+        _mainPolygons.add(mainPolygon);
+    }
+
+    /**
+     * Indique le nombre de régions ajoutées
+     *
+     * @return Nombre de régions
+     */
+    public int getRegionCount() {
+        return _mainPolygons.size();
+    }
+
+    /**
+     * Calcule les frontières et les voisins des régions ajoutées
+     *
+     * @return Manager contenant les régions, dans leur ordre d'ajout
+     */
+    public RegionManager build() {
+        RawPolygon[] rawMainPolygons = _mainPolygons.toArray(new RawPolygon[0]);
+        return new RegionManager(rawMainPolygons, new BoundaryManager(rawMainPolygons, _seeker, _parallel));
+    }
+}
@@ -0,0 +1,141 @@
+package Entities;
+
+import java.util.Arrays;
+
+/**
+ * Ensemble des sommets d'une carte. Chaque coordonnée distincte n'y est stockée qu'une fois et reçoit un numéro ;
+ * les polygones et les frontières ne sont plus que des suites de numéros de sommets, si bien que deux sommets sont
+ * égaux si et seulement si leurs numéros le sont.
+ * L'ajout de sommets peut se faire depuis plusieurs threads. La lecture des coordonnées n'est pas synchronisée et peut
+ * avoir lieu pendant des ajouts, par exemple pendant la lecture en pipeline d'un .shp : getX(), getY() et getPoint()
+ * sont sûrs pour tout numéro obtenu par intern() dans le même thread, ou transmis par un moyen qui établit une relation
+ * happens-before (file bloquante, join d'une tâche...). Le tableau des coordonnées n'est en effet remplacé, lorsqu'il
+ * grandit, qu'une fois la copie terminée, et sa référence est volatile : le lecteur voit soit l'ancien tableau, qui
+ * contient déjà ses sommets, soit un nouveau tableau entièrement recopié.
+ */
+public class VertexPool {
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int EMPTY = -1;
+    // Coordonnées des sommets, X et Y alternés ; publiées par une référence volatile, lue sans verrou
+    private volatile double[] coordinates;
+    private int[] table;
+    private int size = 0;
+
+    /**
+     * Crée un ensemble de sommets vide
+     */
+    public VertexPool() {
+        coordinates = new double[INITIAL_CAPACITY];
+        table = new int[INITIAL_CAPACITY];
+        Arrays.fill(table, EMPTY);
+    }
+
+    /**
+     * Récupère le numéro d'un sommet, en l'ajoutant s'il n'existe pas encore
+     *
+     * @param x Coordonnée en X
+     * @param y Coordonnée en Y
+     * @return Numéro du sommet
+     */
+    public synchronized int intern(double x, double y) {
+        return add(x, y);
+    }
+
+    /**
+     * Récupère les numéros d'une suite de sommets stockés en colonnes, en ajoutant ceux qui n'existent pas encore
+     *
+     * @param xs      Coordonnées en X
+     * @param ys      Coordonnées en Y
+     * @param from    Index du premier sommet à prendre
+     * @param to      Index suivant le dernier sommet à prendre
+     * @param offsetX Valeur soustraite à chaque X
+     * @param offsetY Valeur soustraite à chaque Y
+     * @return Numéros des sommets, dans l'ordre
+     */
+    public synchronized int[] intern(double[] xs, double[] ys, int from, int to, double offsetX, double offsetY) {
+        int[] vertices = new int[to - from];
+        for (int i = from; i < to; i++) {
+            vertices[i - from] = add(xs[i] - offsetX, ys[i] - offsetY);
+        }
+        return vertices;
+    }
+
+    /**
+     * Indique le nombre de sommets distincts
+     *
+     * @return Nombre de sommets
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public double getX(int vertex) {
+        return coordinates[2 * vertex];
+    }
+
+    public double getY(int vertex) {
+        return coordinates[2 * vertex + 1];
+    }
+
+    /**
+     * Crée un point ayant les coordonnées d'un sommet
+     *
+     * @param vertex Numéro du sommet
+     * @return Point
+     */
+    public Point getPoint(int vertex) {
+        return new Point(getX(vertex), getY(vertex));
+    }
+
+    private int add(double x, double y) {
+        // 0.0 et -0.0 sont égaux pour Point.equals : ils doivent donner le même sommet
+        x += 0.0;
+        y += 0.0;
+        int slot = slot(x, y);
+        if (table[slot] != EMPTY) {
+            return table[slot];
+        }
+        double[] coords = coordinates;
+        if (2 * size == coords.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+            coords[2 * size] = x;
+            coords[2 * size + 1] = y;
+            coordinates = coords;
+        } else {
+            coords[2 * size] = x;
+            coords[2 * size + 1] = y;
+        }
+        table[slot] = size;
+        if (++size * 2 > table.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private int slot(double x, double y) {
+        int mask = table.length - 1;
+        int slot = hash(x, y) & mask;
+        while (table[slot] != EMPTY && (getX(table[slot]) != x || getY(table[slot]) != y)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(double x, double y) {
+        long h = (Double.doubleToLongBits(x) ^ (Double.doubleToLongBits(y) * 0x9E3779B97F4A7C15L)) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h >>> 32);
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, EMPTY);
+        int mask = table.length - 1;
+        for (int vertex = 0; vertex < size; vertex++) {
+            int slot = hash(getX(vertex), getY(vertex)) & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = vertex;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package Entities;
+
+/**
+ * Calcule l'importance de chaque sommet d'une ligne selon l'algorithme de Visvalingam-Whyatt :
+ * le sommet formant le plus petit triangle avec ses deux voisins est retiré, l'aire des triangles de ses voisins est
+ * recalculée, et ainsi de suite. L'aire effective d'un sommet est l'aire de son triangle au moment de son retrait,
+ * rendue croissante dans l'ordre des retraits ; les extrémités ne sont jamais retirées.
+ * Garder les sommets d'aire effective supérieure à un seuil donne directement la ligne simplifiée à ce seuil.
+ */
+final class Visvalingam {
+
+    private Visvalingam() {
+    }
+
+    /**
+     * Calcule l'aire effective de chaque sommet d'une ligne, en O(n log n) grâce à un tas des sommets restants
+     *
+     * @param xs Coordonnées en X
+     * @param ys Coordonnées en Y
+     * @return Aire effective de chaque sommet, infinie pour les extrémités
+     */
+    static double[] effectiveAreas(double[] xs, double[] ys) {
+        int n = xs.length;
+        double[] areas = new double[n];
+        if (n == 0) {
+            return areas;
+        }
+        areas[0] = Double.POSITIVE_INFINITY;
+        areas[n - 1] = Double.POSITIVE_INFINITY;
+        if (n < 3) {
+            return areas;
+        }
+
+        int[] previous = new int[n];
+        int[] next = new int[n];
+        for (int i = 0; i < n; i++) {
+            previous[i] = i - 1;
+            next[i] = i + 1;
+        }
+
+        // Tas des sommets intérieurs restants, par aire croissante, avec la position de chaque sommet dans le tas
+        int[] heap = new int[n - 2];
+        int[] position = new int[n];
+        for (int i = 1; i < n - 1; i++) {
+            areas[i] = triangleArea(xs, ys, i - 1, i, i + 1);
+            heap[i - 1] = i;
+            position[i] = i - 1;
+        }
+        int size = n - 2;
+        for (int k = size / 2 - 1; k >= 0; k--) {
+            siftDown(heap, position, areas, size, k);
+        }
+
+        double max = 0;
+        while (size > 0) {
+            int vertex = heap[0];
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(heap, position, areas, size, 0);
+            }
+
+            // Un sommet retiré après un autre ne doit pas paraître moins important que lui
+            if (areas[vertex] < max) {
+                areas[vertex] = max;
+            } else {
+                max = areas[vertex];
+            }
+
+            int p = previous[vertex];
+            int q = next[vertex];
+            next[p] = q;
+            previous[q] = p;
+            if (p > 0) {
+                areas[p] = triangleArea(xs, ys, previous[p], p, q);
+                update(heap, position, areas, size, position[p]);
+            }
+            if (q < n - 1) {
+                areas[q] = triangleArea(xs, ys, p, q, next[q]);
+                update(heap, position, areas, size, position[q]);
+            }
+        }
+        return areas;
+    }
+
+    private static double triangleArea(double[] xs, double[] ys, int a, int b, int c) {
+        return Math.abs((xs[b] - xs[a]) * (ys[c] - ys[a]) - (xs[c] - xs[a]) * (ys[b] - ys[a])) / 2;
+    }
+
+    /**
+     * Ordre du tas : par aire, puis par index pour que le résultat ne dépende pas de l'ordre des égalités
+     */
+    private static boolean before(double[] areas, int a, int b) {
+        return areas[a] < areas[b] || (areas[a] == areas[b] && a < b);
+    }
+
+    private static void update(int[] heap, int[] position, double[] areas, int size, int k) {
+        int vertex = heap[k];
+        siftUp(heap, position, areas, k);
+        siftDown(heap, position, areas, size, position[vertex]);
+    }
+
+    private static void siftUp(int[] heap, int[] position, double[] areas, int k) {
+        int vertex = heap[k];
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!before(areas, vertex, heap[parent])) {
+                break;
+            }
+            heap[k] = heap[parent];
+            position[heap[k]] = k;
+            k = parent;
+        }
+        heap[k] = vertex;
+        position[vertex] = k;
+    }
+
+    private static void siftDown(int[] heap, int[] position, double[] areas, int size, int k) {
+        int vertex = heap[k];
+        while (2 * k + 1 < size) {
+            int child = 2 * k + 1;
+            if (child + 1 < size && before(areas, heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(areas, heap[child], vertex)) {
+                break;
+            }
+            heap[k] = heap[child];
+            position[heap[k]] = k;
+            k = child;
+        }
+        heap[k] = vertex;
+        position[vertex] = k;
+    }
+}
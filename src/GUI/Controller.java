@@ -23,7 +23,6 @@ import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileExcep
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Objects;
 import java.util.logging.Level;
 
 public class Controller {
@@ -165,11 +164,7 @@ public class Controller {
     }
 
     private Region getRegion() {
-        Region region = null;
-        for (Region r : Main.geoMap.getRegions()) {
-            if (Objects.equals(r.getName(), FirstRegion)) region = r;
-        }
-        return region;
+        return Main.geoMap.getManager().getRegionByName(FirstRegion);
     }
 
 
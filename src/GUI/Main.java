@@ -40,9 +40,6 @@ public class Main extends Application {
             ml = new MapLoader(shp, dbf);
         }
 
-
-        geoMap = ml.load();
-
         // Le champ par défaut correspond au nom de la colonne contenant le nom de la région dans le .dbf
         int i;
         nameColumns.clear();
@@ -52,6 +49,13 @@ public class Main extends Application {
                 if (ml.getDbfReader().getField(i).getName().toLowerCase().contains("name"))
                     nameColumns.add(ml.getDbfReader().getField(i).getName());
             }
+            // Seules les colonnes de noms sont utilisées, les autres ne sont pas décodées
+            ml.setInfoFields(nameColumns);
+        }
+
+        geoMap = ml.load();
+
+        if (ml.getDbfReader() != null) {
             geoMap.getManager().setRegionsName(nameColumns.get(nameColumns.size() - 1));
         }
 
@@ -14,9 +14,14 @@ import javafx.scene.text.TextAlignment;
  * Décrit un canvas spécialisé dans l'affichage de polygones
  */
 public class PolyCanvas extends CustomCanvas {
+    // Aire, en pixels carrés, en dessous de laquelle un sommet n'apporte rien de visible
+    private static final double MIN_PIXEL_AREA = 0.5;
     private final BooleanProperty nomPays = new SimpleBooleanProperty();
     private GeoMap map;
     private double _ratio;
+    // Coordonnées à l'écran de la frontière en cours de dessin, réutilisées d'une frontière à l'autre
+    private double[] _x = new double[0];
+    private double[] _y = new double[0];
 
     /**
      * Canvas affichant la carte avec le nom de la région. Le ratio est toujours respecté
@@ -58,8 +63,11 @@ public class PolyCanvas extends CustomCanvas {
         GraphicsContext gc = super.getGraphicsContext2D();
         _ratio = resize();
         drawInitialize(gc);
-        for (Boundary b : map.getSimpleBoundaries()) {
-            drawPolygon(gc, b);
+        // Seuil d'importance des sommets : plus on zoome, plus les petits détails deviennent visibles
+        double scale = _ratio * getZoom();
+        double minArea = MIN_PIXEL_AREA / (scale * scale);
+        for (Boundary b : map.getBoundaries()) {
+            drawPolygon(gc, b, minArea);
         }
         if (getNomPays())
             for (Region region : map.getRegions()) {
@@ -74,16 +82,27 @@ public class PolyCanvas extends CustomCanvas {
         gc.setTextBaseline(VPos.CENTER);
     }
 
-    private void drawPolygon(GraphicsContext gc, Boundary b) {
-        int size = b.getPoints().size();
-        double x[] = new double[size];
-        double y[] = new double[size];
-        for (int i = 0; i < size; i++) {
-            y[i] = computeY(b.getPoints().get(i).y);
-            x[i] = computeX(b.getPoints().get(i).x);
+    private void drawPolygon(GraphicsContext gc, Boundary b, double minArea) {
+        // Frontière entièrement hors du canvas : rien à dessiner (l'axe Y est inversé)
+        if (computeX(b.getMaxX()) < 0 || computeX(b.getMinX()) > _canvasWidth
+                || computeY(b.getMinY()) < 0 || computeY(b.getMaxY()) > _canvasHeight) {
+            return;
+        }
+        // Seuls les sommets du niveau de détail choisi sont parcourus
+        int[] kept = b.getDetailLevels().select(minArea);
+        int count = kept.length;
+        if (_x.length < count) {
+            _x = new double[count];
+            _y = new double[count];
+        }
+        double[] xs = b.getXs();
+        double[] ys = b.getYs();
+        for (int j = 0; j < count; j++) {
+            _y[j] = computeY(ys[kept[j]]);
+            _x[j] = computeX(xs[kept[j]]);
         }
 
-        gc.strokePolyline(x, y, size);
+        gc.strokePolyline(_x, _y, count);
     }
 
 
@@ -36,6 +36,15 @@ class FileReader {
         }
     }
 
+    /**
+     * Retourne le fichier
+     *
+     * @return Fichier à lire
+     */
+    public File getFile() {
+        return _file;
+    }
+
     /**
      * Retourne le flux de lecture du fichier
      *
@@ -0,0 +1,36 @@
+package Loader;
+
+/**
+ * Reçoit l'avancement du chargement d'une carte, étape par étape.
+ * Les étapes s'exécutent en même temps : les méthodes sont appelées depuis les threads du chargeur,
+ * une interface graphique doit donc repasser sur son propre thread avant de s'en servir.
+ */
+public interface LoadingListener {
+
+    /**
+     * Étapes du chargement
+     */
+    enum Stage {
+        /**
+         * Décodage des formes du .shp
+         */
+        SHAPES,
+        /**
+         * Lecture des enregistrements du .dbf
+         */
+        DATABASE,
+        /**
+         * Indexation des régions puis calcul des frontières et des voisins
+         */
+        TOPOLOGY
+    }
+
+    /**
+     * Indique l'avancement d'une étape. L'étape est terminée lorsque done est égal à total.
+     *
+     * @param stage Étape concernée
+     * @param done  Nombre d'éléments traités
+     * @param total Nombre total d'éléments, ou -1 s'il n'est pas encore connu
+     */
+    void onProgress(Stage stage, int done, int total);
+}
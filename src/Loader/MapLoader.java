@@ -5,16 +5,27 @@ import Entities.GeoMap;
 import Entities.RawPolygon;
 import Entities.Region;
 import Entities.RegionManager;
+import Entities.RegionManagerBuilder;
 import LoggerUtils.LoggerManager;
-import com.hexiong.jdbf.DBFReader;
+import com.hexiong.jdbf.MappedDBFReader;
 import com.hexiong.jdbf.JDBFException;
 import org.nocrala.tools.gis.data.esri.shapefile.ValidationPreferences;
 import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
+import java.util.stream.IntStream;
 
 /**
  * Chargeur des fichiers .shp et .dbf
@@ -22,8 +33,12 @@ import java.util.logging.Level;
  * @author Théophile
  */
 public class MapLoader {
-    private final DBFReader dbfReader;
+    private static final int QUEUE_CAPACITY = 64;
+    private final MappedDBFReader dbfReader;
     private final ShapeStreamReader shapeStreamReader;
+    private final boolean parallel;
+    private volatile LoadingListener loadingListener = null;
+    private int[] infoFields = null;
 
     /**
      * Construit un chargeur de fichiers .shp et .dbf
@@ -36,21 +51,66 @@ public class MapLoader {
      * @throws JDBFException
      */
     public MapLoader(String shpFilePath, String dbfFilePath) throws IOException, InvalidMapException, InvalidShapeFileException, JDBFException {
+        this(shpFilePath, dbfFilePath, true);
+    }
+
+    /**
+     * Construit un chargeur de fichiers .shp et .dbf
+     *
+     * @param shpFilePath Emplacement du fichier .shp
+     * @param dbfFilePath Emplacement du fichier .dbf
+     * @param parallel    Vrai pour décoder les formes du .shp et calculer les frontières en parallèle sur plusieurs coeurs
+     * @throws IOException
+     * @throws InvalidMapException
+     * @throws InvalidShapeFileException
+     * @throws JDBFException
+     */
+    public MapLoader(String shpFilePath, String dbfFilePath, boolean parallel) throws IOException, InvalidMapException, InvalidShapeFileException, JDBFException {
+        this.parallel = parallel;
         FileReader fileReader = new FileReader(shpFilePath);
 
         ValidationPreferences v = new ValidationPreferences();
         v.setAllowUnlimitedNumberOfPointsPerShape(true);
 
-        this.shapeStreamReader = new ShapeStreamReader(fileReader.getFileInputStream(), v);
+        this.shapeStreamReader = new ShapeStreamReader(fileReader.getFile(), v);
         if (dbfFilePath != null) {
-            this.dbfReader = new DBFReader(dbfFilePath);
+            this.dbfReader = new MappedDBFReader(dbfFilePath);
+            setInfoFields(null);
         } else {
             this.dbfReader = null;
         }
     }
 
     /**
-     * Charge une liste de régions à partir des données du/des fichier(s)
+     * Restreint les informations des régions aux champs donnés du .dbf. Seuls ces champs sont décodés lors du
+     * chargement ; les noms absents du .dbf sont ignorés. Par défaut, tous les champs sont lus.
+     *
+     * @param fieldNames Noms des champs à lire, ou null pour tous les lire
+     */
+    public void setInfoFields(Collection<String> fieldNames) {
+        if (dbfReader == null) {
+            return;
+        }
+        if (fieldNames == null) {
+            infoFields = IntStream.range(0, dbfReader.getFieldCount()).toArray();
+            return;
+        }
+        infoFields = fieldNames.stream().mapToInt(dbfReader::getFieldIndex).filter(i -> i >= 0).distinct().toArray();
+    }
+
+    /**
+     * Indique l'objet à prévenir de l'avancement du chargement
+     *
+     * @param loadingListener Objet recevant l'avancement de chaque étape, ou null
+     */
+    public void setLoadingListener(LoadingListener loadingListener) {
+        this.loadingListener = loadingListener;
+    }
+
+    /**
+     * Charge une liste de régions à partir des données du/des fichier(s).
+     * La lecture du .dbf se fait en même temps que le décodage du .shp, et chaque région est indexée dès qu'elle est
+     * décodée : la durée du chargement est celle de l'étape la plus lente plutôt que la somme des étapes.
      *
      * @return Structure carte contenant toutes les régions et les dimensions de la carte
      * @throws IOException
@@ -58,49 +118,201 @@ public class MapLoader {
      * @throws JDBFException
      */
     public GeoMap load() throws JDBFException, IOException, InvalidShapeFileException {
-        RegionManager manager = loadRegions();
+        RegionManager manager = loadRegions(true);
+        if (manager == null) {
+            throw new InvalidShapeFileException("Le fichier ne contient aucune forme");
+        }
+
+        return new GeoMap(shapeStreamReader.getMapSizeX(), shapeStreamReader.getMapSizeY(), manager);
+    }
+
+    /**
+     * Charge uniquement les régions dont le rectangle englobant coupe la zone donnée, par exemple une seule région d'un
+     * découpage national. Les autres enregistrements du .shp sont sautés sans être décodés, et les lignes
+     * correspondantes du .dbf sont ignorées.
+     *
+     * @param minX Minimum de X de la zone, dans les coordonnées du fichier
+     * @param minY Minimum de Y de la zone, dans les coordonnées du fichier
+     * @param maxX Maximum de X de la zone, dans les coordonnées du fichier
+     * @param maxY Maximum de Y de la zone, dans les coordonnées du fichier
+     * @return Structure carte contenant les régions de la zone et les dimensions de la zone
+     * @throws IOException
+     * @throws InvalidShapeFileException
+     * @throws JDBFException
+     * @throws InvalidMapException La zone est invalide, en dehors de la carte ou ne contient aucune région
+     */
+    public GeoMap loadRegionOfInterest(double minX, double minY, double maxX, double maxY) throws JDBFException, IOException, InvalidShapeFileException, InvalidMapException {
+        shapeStreamReader.setRegionOfInterest(minX, minY, maxX, maxY);
+        RegionManager manager = loadRegions(false);
+        if (manager == null) {
+            throw new InvalidMapException("Aucune région ne se trouve dans la zone demandée");
+        }
 
         return new GeoMap(shapeStreamReader.getMapSizeX(), shapeStreamReader.getMapSizeY(), manager);
     }
 
-    public DBFReader getDbfReader() {
+    public MappedDBFReader getDbfReader() {
         return dbfReader;
     }
 
-    private RegionManager loadRegions() throws IOException, InvalidShapeFileException, JDBFException {
-        List<List<RawPolygon>> rawRegions = new ArrayList<>();
+    /**
+     * Charge les régions : un thread décode les formes, un autre lit le .dbf, et le thread appelant indexe les régions
+     * au fur et à mesure qu'elles arrivent avant de calculer les frontières.
+     * Lorsque seules quelques lignes du .dbf sont utiles, elles sont lues directement par leur index à la fin.
+     *
+     * @param allRecords Vrai si toutes les lignes du .dbf seront utilisées
+     * @return Régions chargées, ou null si aucune forme n'a été lue
+     */
+    private RegionManager loadRegions(boolean allRecords) throws IOException, InvalidShapeFileException, JDBFException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            BlockingQueue<ShapeRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            Future<?> shapes = executor.submit(() -> {
+                try {
+                    readRawRegions(queue);
+                } finally {
+                    queue.put(ShapeRecord.END);
+                }
+                return null;
+            });
+            Future<List<Object[]>> records = allRecords ? executor.submit(this::readdbfRecords) : null;
 
-        List<RawPolygon> rawRegion = shapeStreamReader.getNextShape();
+            RegionManagerBuilder builder = new RegionManagerBuilder(parallel);
+            List<Integer> recordIndexes = new ArrayList<>();
+            for (ShapeRecord record = queue.take(); record != ShapeRecord.END; record = queue.take()) {
+                builder.addRegion(record.polygons);
+                recordIndexes.add(record.recordIndex);
+                notifyProgress(LoadingListener.Stage.TOPOLOGY, recordIndexes.size(), -1);
+            }
+            shapes.get();
+
+            if (recordIndexes.isEmpty()) {
+                return null;
+            }
+            RegionManager manager = builder.build();
+            notifyProgress(LoadingListener.Stage.TOPOLOGY, recordIndexes.size(), recordIndexes.size());
 
-        while (rawRegion.size() > 0) {
-            rawRegions.add(rawRegion);
-            rawRegion = shapeStreamReader.getNextShape();
+            List<Object[]> data = records != null ? records.get() : null;
+            for (int i = 0; i < manager.getRegions().size(); i++) {
+                setdbfInfos(manager.getRegions().get(i), data, recordIndexes.get(i));
+            }
+
+            return manager;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Le chargement a été interrompu", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InvalidShapeFileException) {
+                throw (InvalidShapeFileException) cause;
+            } else if (cause instanceof JDBFException) {
+                throw (JDBFException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Une erreur de lecture est survenue", cause);
+        } finally {
+            executor.shutdownNow();
         }
+    }
 
-        RegionManager manager = new RegionManager(rawRegions);
+    /**
+     * Décode les formes du .shp et les transmet une à une
+     *
+     * @param queue File recevant chaque forme lue avec l'index de son enregistrement
+     * @throws IOException
+     * @throws InvalidShapeFileException
+     * @throws InterruptedException Le chargement a été interrompu
+     */
+    private void readRawRegions(BlockingQueue<ShapeRecord> queue) throws IOException, InvalidShapeFileException, InterruptedException {
+        int count = 0;
 
-        for (Region r : manager.getRegions()) {
-            getdbfInfos(r);
+        if (parallel && shapeStreamReader.canReadInParallel()) {
+            // Les formes sont transmises dès que leur tranche est décodée, pendant le décodage des suivantes
+            AtomicInteger published = new AtomicInteger();
+            shapeStreamReader.readAllShapesInParallel((recordIndex, rawRegion) -> {
+                queue.put(new ShapeRecord(recordIndex, rawRegion));
+                notifyProgress(LoadingListener.Stage.SHAPES, published.incrementAndGet(), -1);
+            });
+            count = published.get();
+        } else {
+            List<RawPolygon> rawRegion = shapeStreamReader.getNextShape();
+
+            while (rawRegion.size() > 0) {
+                queue.put(new ShapeRecord(shapeStreamReader.getLastRecordIndex(), rawRegion));
+                notifyProgress(LoadingListener.Stage.SHAPES, ++count, -1);
+                rawRegion = shapeStreamReader.getNextShape();
+            }
         }
 
-        return manager;
+        notifyProgress(LoadingListener.Stage.SHAPES, count, count);
+    }
+
+    /**
+     * Lit tous les enregistrements du .dbf, en parallèle par tranches d'enregistrements en mode parallèle
+     *
+     * @return Enregistrements, dans l'ordre du fichier
+     * @throws JDBFException
+     */
+    private List<Object[]> readdbfRecords() throws JDBFException {
+        List<Object[]> records = new ArrayList<>();
+        if (dbfReader != null && parallel) {
+            records = Arrays.asList(dbfReader.getRecords(infoFields));
+            notifyProgress(LoadingListener.Stage.DATABASE, records.size(), records.size());
+        } else if (dbfReader != null) {
+            int total = dbfReader.getRecordCount();
+            for (int i = 0; i < total; i++) {
+                records.add(dbfReader.getRecord(i, infoFields));
+                notifyProgress(LoadingListener.Stage.DATABASE, i + 1, total);
+            }
+        }
+        return records;
     }
 
-    private void getdbfInfos(Region region) throws JDBFException {
+    /**
+     * Renseigne les informations d'une région à partir de sa ligne du .dbf
+     *
+     * @param region      Région à renseigner
+     * @param records     Enregistrements déjà lus, ou null pour lire directement la ligne voulue
+     * @param recordIndex Index de la ligne de la région
+     * @throws JDBFException
+     */
+    private void setdbfInfos(Region region, List<Object[]> records, int recordIndex) throws JDBFException {
         if (dbfReader != null) {
-            if (dbfReader.hasNextRecord()) {
-                readdbfNextRecord(region);
+            if (recordIndex < dbfReader.getRecordCount()) {
+                int[] fields = infoFields;
+                Object[] data = records != null ? records.get(recordIndex) : dbfReader.getRecord(recordIndex, fields);
+                for (int i = 0; i < fields.length; i++) {
+                    String fieldName = dbfReader.getField(fields[i]).getName();
+                    region.setInfo(fieldName, data[i].toString());
+                }
             } else {
                 LoggerManager.getInstance().getLogger().log(Level.WARNING, "Missing data in the DataBase File (.dbf)");
             }
         }
     }
 
-    private void readdbfNextRecord(Region region) throws JDBFException {
-        Object[] data = dbfReader.nextRecord();
-        for (int fieldIndex = 0; fieldIndex < dbfReader.getFieldCount(); fieldIndex++) {
-            String fieldName = dbfReader.getField(fieldIndex).getName();
-            region.setInfo(fieldName, data[fieldIndex].toString());
+    private void notifyProgress(LoadingListener.Stage stage, int done, int total) {
+        LoadingListener listener = loadingListener;
+        if (listener != null) {
+            listener.onProgress(stage, done, total);
+        }
+    }
+
+    /**
+     * Forme décodée transmise du thread de décodage au thread de construction des régions
+     */
+    private static class ShapeRecord {
+        private static final ShapeRecord END = new ShapeRecord(-1, null);
+
+        private final int recordIndex;
+        private final List<RawPolygon> polygons;
+
+        ShapeRecord(int recordIndex, List<RawPolygon> polygons) {
+            this.recordIndex = recordIndex;
+            this.polygons = polygons;
         }
     }
 }
@@ -1,20 +1,27 @@
 package Loader;
 
 import CustomException.InvalidMapException;
-import Entities.Point;
 import Entities.RawPolygon;
+import Entities.VertexPool;
+import org.nocrala.tools.gis.data.esri.shapefile.IndexedShapeFileReader;
 import org.nocrala.tools.gis.data.esri.shapefile.ShapeFileReader;
+import org.nocrala.tools.gis.data.esri.shapefile.ShapeVisitor;
 import org.nocrala.tools.gis.data.esri.shapefile.ValidationPreferences;
 import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileException;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.AbstractShape;
-import org.nocrala.tools.gis.data.esri.shapefile.shape.PointData;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeType;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.AbstractPolyShape;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -22,7 +29,19 @@ import java.util.List;
  */
 class ShapeStreamReader {
     private static final double NO_DATA = -1e38;
+    // Nombre de tranches décodées par coeur : des tranches plus petites sont transmises plus tôt
+    private static final int CHUNKS_PER_THREAD = 8;
     private ShapeFileReader _reader;
+    private File _file = null;
+    private ValidationPreferences _validationPreferences = null;
+    // Sommets de toutes les formes lues, partagés par les polygones qui les contiennent
+    private final VertexPool _vertexPool = new VertexPool();
+    // Lecteur indexé du fichier, ouvert à la première utilisation
+    private IndexedShapeFileReader _indexedReader = null;
+    // Union des rectangles englobants des enregistrements gardés par la zone (minX, minY, maxX, maxY)
+    private double[] _keptBox = null;
+    // Visiteur de getNextShape, réutilisé pour tous les enregistrements
+    private final RawPolygonCollector _collector = new RawPolygonCollector();
 
     /**
      * Constructeur de la classe
@@ -36,20 +55,38 @@ class ShapeStreamReader {
      */
     public ShapeStreamReader(FileInputStream stream, ValidationPreferences validationPreferences) throws InvalidShapeFileException, IOException, InvalidMapException, NullPointerException {
         if (stream != null) {
-            if (validationPreferences == null) {
-                createShapeFileReader(stream);
-            } else {
-                createShapeFileReader(stream, validationPreferences);
-            }
+            _validationPreferences = validationPreferences == null ? new ValidationPreferences() : validationPreferences;
+            createShapeFileReader(stream, _validationPreferences);
         } else {
             _reader = null;
             throw new NullPointerException("Le flux de données est absent");
         }
     }
 
-    private void createShapeFileReader(FileInputStream stream) throws InvalidShapeFileException, IOException, InvalidMapException {
+    /**
+     * Constructeur de la classe. Le fichier est projeté en mémoire et décodé directement depuis celle-ci.
+     *
+     * @param file                  Fichier shapefile a lire
+     * @param validationPreferences Preferences de lecture du fichier shapefile
+     * @throws InvalidShapeFileException Le fichier n'est pas un fichier shapefile valide
+     * @throws IOException               Erreur de lecture du fichier
+     * @throws InvalidMapException       Le format de la carte n'est pas reconnu
+     * @throws NullPointerException      Le fichier est absent
+     */
+    public ShapeStreamReader(File file, ValidationPreferences validationPreferences) throws InvalidShapeFileException, IOException, InvalidMapException, NullPointerException {
+        if (file != null) {
+            _file = file;
+            _validationPreferences = validationPreferences == null ? new ValidationPreferences() : validationPreferences;
+            createShapeFileReader(file, _validationPreferences);
+        } else {
+            _reader = null;
+            throw new NullPointerException("Le fichier est absent");
+        }
+    }
+
+    private void createShapeFileReader(File file, ValidationPreferences validationPreferences) throws InvalidShapeFileException, IOException, InvalidMapException {
         try {
-            _reader = new ShapeFileReader(stream);
+            _reader = new ShapeFileReader(file, validationPreferences);
         } catch (InvalidShapeFileException e) {
             throw new InvalidShapeFileException("La forme est invalide", e.getCause());
         } catch (IOException e) {
@@ -79,12 +116,73 @@ class ShapeStreamReader {
     }
 
 
+    /**
+     * Restreint la lecture aux formes dont le rectangle englobant coupe la zone donnée.
+     * Les autres enregistrements sont sautés sans que leurs points soient décodés.
+     * Les formes gardées ne sont pas découpées : une forme à cheval sur le bord de la zone est lue en entier. L'origine
+     * et les dimensions de la carte sont donc celles de l'union des rectangles englobants des formes gardées, lus ici
+     * en un seul passage sur les en-têtes des enregistrements, afin qu'aucune forme ne dépasse de la carte.
+     * Doit être appelée avant la lecture des formes, et nécessite un lecteur construit à partir d'un fichier.
+     *
+     * @param minX Minimum de X de la zone, dans les coordonnées du fichier
+     * @param minY Minimum de Y de la zone, dans les coordonnées du fichier
+     * @param maxX Maximum de X de la zone, dans les coordonnées du fichier
+     * @param maxY Maximum de Y de la zone, dans les coordonnées du fichier
+     * @throws InvalidMapException       La zone est invalide, en dehors de la carte ou ne contient aucune forme
+     * @throws IOException               Erreur de lecture du fichier
+     * @throws InvalidShapeFileException Un enregistrement est invalide
+     */
+    public void setRegionOfInterest(double minX, double minY, double maxX, double maxY) throws InvalidMapException, IOException, InvalidShapeFileException {
+        if (!canReadInParallel()) {
+            throw new IllegalStateException("La lecture d'une zone nécessite un fichier");
+        }
+        if (minX > maxX || minY > maxY) {
+            throw new InvalidMapException("La zone demandée est invalide");
+        }
+        if (maxX < _reader.getHeader().getBoxMinX() || minX > _reader.getHeader().getBoxMaxX() || maxY < _reader.getHeader().getBoxMinY() || minY > _reader.getHeader().getBoxMaxY()) {
+            throw new InvalidMapException("La zone demandée est en dehors de la carte");
+        }
+        _validationPreferences.setQueryBox(minX, minY, maxX, maxY);
+
+        IndexedShapeFileReader indexedReader = getIndexedReader();
+        double[] kept = null;
+        for (int i = 0; i < indexedReader.recordCount(); i++) {
+            double[] box = indexedReader.getBoundingBox(i);
+            if (box == null || !_validationPreferences.intersectsQueryBox(box[0], box[1], box[2], box[3])) {
+                continue;
+            }
+            if (kept == null) {
+                kept = box;
+            } else {
+                kept[0] = Math.min(kept[0], box[0]);
+                kept[1] = Math.min(kept[1], box[1]);
+                kept[2] = Math.max(kept[2], box[2]);
+                kept[3] = Math.max(kept[3], box[3]);
+            }
+        }
+        if (kept == null) {
+            _validationPreferences.clearQueryBox();
+            throw new InvalidMapException("Aucune région ne se trouve dans la zone demandée");
+        }
+        _keptBox = kept;
+    }
+
+    private IndexedShapeFileReader getIndexedReader() throws IOException, InvalidShapeFileException {
+        if (_indexedReader == null) {
+            _indexedReader = new IndexedShapeFileReader(_file, _validationPreferences);
+        }
+        return _indexedReader;
+    }
+
     /**
      * Retourne la taille en X de la carte
      *
      * @return Taille en X
      */
     public double getMapSizeX() {
+        if (_keptBox != null) {
+            return _keptBox[2] - _keptBox[0];
+        }
         return (Math.abs(_reader.getHeader().getBoxMaxX()) - _reader.getHeader().getBoxMinX());
     }
 
@@ -94,6 +192,9 @@ class ShapeStreamReader {
      * @return Taille en Y
      */
     public double getMapSizeY() {
+        if (_keptBox != null) {
+            return _keptBox[3] - _keptBox[1];
+        }
         return (Math.abs(_reader.getHeader().getBoxMaxY()) - _reader.getHeader().getBoxMinY());
     }
 
@@ -103,6 +204,9 @@ class ShapeStreamReader {
      * @return Minimum de X
      */
     private double getMapMinX() {
+        if (_keptBox != null) {
+            return _keptBox[0];
+        }
         return _reader.getHeader().getBoxMinX();
     }
 
@@ -112,33 +216,250 @@ class ShapeStreamReader {
      * @return Minimum de Y
      */
     private double getMapMinY() {
+        if (_keptBox != null) {
+            return _keptBox[1];
+        }
         return _reader.getHeader().getBoxMinY();
     }
 
     /**
-     * Retourne la prochaine forme contenue dans le flux de données
+     * Retourne la prochaine forme contenue dans le flux de données.
+     * Les enregistrements sans polygone (formes NULL ou d'un autre type) sont sautés, comme dans readAllShapesInParallel.
      *
-     * @return Polygone JavaFX contenant les frontières de la région
+     * @return Polygones de la région, liste vide seulement à la fin du fichier
      * @throws IOException
      * @throws InvalidShapeFileException
      */
     public List<RawPolygon> getNextShape() throws IOException, InvalidShapeFileException {
-        AbstractShape shape = _reader.next();
+        while (_reader.nextRecord(_collector)) {
+            if (_collector.polygons != null) {
+                return _collector.polygons;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Retourne l'index, à partir de 0, du dernier enregistrement lu par getNextShape.
+     * Lorsqu'une zone est définie, les enregistrements sautés font que cet index peut avancer de plus d'une unité.
+     *
+     * @return Index de l'enregistrement, qui est aussi celui de sa ligne dans le .dbf
+     */
+    public int getLastRecordIndex() {
+        return _validationPreferences.getExpectedRecordNumber() - 1;
+    }
+
+    /**
+     * Indique si les formes peuvent être décodées en parallèle, c'est-à-dire si le lecteur a été construit à partir d'un fichier
+     *
+     * @return Vrai si readAllShapesInParallel peut être utilisée
+     */
+    public boolean canReadInParallel() {
+        return _file != null;
+    }
+
+    /**
+     * Décode toutes les formes du fichier en parallèle et les transmet au fur et à mesure.
+     * La table des positions des enregistrements est découpée en tranches décodées sur un ForkJoinPool. Chaque tranche
+     * est transmise dès qu'elle est décodée et que toutes les précédentes l'ont été : l'ordre des enregistrements est
+     * conservé, afin que les lignes du .dbf correspondent toujours, et le traitement des premières formes commence
+     * pendant le décodage des suivantes.
+     * Les enregistrements sans polygone (formes NULL ou d'un autre type) et, lorsqu'une zone est définie, ceux en dehors
+     * de celle-ci ne sont pas transmis.
+     *
+     * @param handler Traitement de chaque forme, appelé depuis le thread appelant dans l'ordre du fichier
+     * @throws IOException
+     * @throws InvalidShapeFileException
+     * @throws InterruptedException Le décodage a été interrompu
+     */
+    public void readAllShapesInParallel(ShapeHandler handler) throws IOException, InvalidShapeFileException, InterruptedException {
+        if (!canReadInParallel()) {
+            throw new IllegalStateException("Le décodage parallèle nécessite un fichier");
+        }
+        IndexedShapeFileReader indexedReader = getIndexedReader();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<RawPolygon>[] shapes = new List[indexedReader.recordCount()];
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        int chunkSize = Math.max(1, shapes.length / (ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD));
+
+        List<ShapeDecodingTask> tasks = new ArrayList<>();
+        for (int from = 0; from < shapes.length; from += chunkSize) {
+            ShapeDecodingTask task = new ShapeDecodingTask(indexedReader, shapes, from, Math.min(from + chunkSize, shapes.length), failure);
+            ForkJoinPool.commonPool().execute(task);
+            tasks.add(task);
+        }
+
+        try {
+            for (ShapeDecodingTask task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw (RuntimeException) e.getCause();
+                }
+                Exception e = failure.get();
+                if (e instanceof InvalidShapeFileException) {
+                    throw new InvalidShapeFileException("La forme est invalide", e);
+                } else if (e instanceof IOException) {
+                    throw new IOException("Une erreur de lecture est survenue", e);
+                }
+                for (int i = task.from; i < task.to; i++) {
+                    if (shapes[i] != null) {
+                        handler.shape(i, shapes[i]);
+                        // Les polygones transmis n'ont plus à être retenus ici
+                        shapes[i] = null;
+                    }
+                }
+            }
+        } finally {
+            for (ShapeDecodingTask task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Indique si un type de forme est décodé en AbstractPolyShape (polylignes et polygones), les seules formes lues
+     */
+    private static boolean isPolyType(ShapeType shapeType) {
+        switch (shapeType) {
+            case POLYLINE:
+            case POLYLINE_Z:
+            case POLYLINE_M:
+            case POLYGON:
+            case POLYGON_Z:
+            case POLYGON_M:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private List<RawPolygon> toRawPolygons(AbstractShape shape) {
+        if (!(shape instanceof AbstractPolyShape)) {
+            return null;
+        }
+        AbstractPolyShape polygonShape = (AbstractPolyShape) shape;
         List<RawPolygon> polygons = new ArrayList<>();
-        if (shape != null) {
-            AbstractPolyShape polygonShape = (AbstractPolyShape) shape;
-            for (int i = 0; i < polygonShape.getNumberOfParts(); i++) {
-                polygons.add(addPointDataArrayToPolygon(polygonShape.getPointsOfPart(i)));
+        for (int i = 0; i < polygonShape.getNumberOfParts(); i++) {
+            polygons.add(new RawPolygon(_vertexPool, polygonShape.getXs(), polygonShape.getYs(), polygonShape.getPartStart(i), polygonShape.getPartEnd(i), getMapMinX(), getMapMinY()));
+        }
+        return polygons.isEmpty() ? null : polygons;
+    }
+
+    /**
+     * Tâche décodant une tranche d'enregistrements [from, to) et rangeant chaque forme à son index
+     */
+    private class ShapeDecodingTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final IndexedShapeFileReader reader;
+        private final List<RawPolygon>[] shapes;
+        private final int from;
+        private final int to;
+        private final AtomicReference<Exception> failure;
+
+        ShapeDecodingTask(IndexedShapeFileReader reader, List<RawPolygon>[] shapes, int from, int to, AtomicReference<Exception> failure) {
+            this.reader = reader;
+            this.shapes = shapes;
+            this.from = from;
+            this.to = to;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            for (int i = from; i < to && failure.get() == null; i++) {
+                try {
+                    shapes[i] = reader.isInQueryBox(i) ? toRawPolygons(reader.getShape(i)) : null;
+                } catch (IOException | InvalidShapeFileException e) {
+                    failure.compareAndSet(null, e);
+                }
             }
         }
-        return polygons;
     }
 
-    private RawPolygon addPointDataArrayToPolygon(PointData[] points) {
-        RawPolygon polygon = new RawPolygon();
-        for (PointData point : points) {
-            polygon.getPoints().add(new Point(point.getX() - getMapMinX(), point.getY() - getMapMinY()));
+    /**
+     * Traitement des formes décodées par readAllShapesInParallel
+     */
+    interface ShapeHandler {
+        /**
+         * Reçoit les polygones d'un enregistrement
+         *
+         * @param recordIndex Index de l'enregistrement, qui est aussi celui de sa ligne dans le .dbf
+         * @param polygons    Polygones de la forme
+         * @throws InterruptedException Le traitement a été interrompu
+         */
+        void shape(int recordIndex, List<RawPolygon> polygons) throws InterruptedException;
+    }
+
+    /**
+     * Visiteur construisant directement les polygones d'un enregistrement à partir des coordonnées décodées,
+     * sans passer par les formes de la bibliothèque. Un seul visiteur sert à toute la lecture : les coordonnées d'une
+     * partie sont rangées dans des tampons réutilisés d'une partie et d'un enregistrement à l'autre, puis recopiées
+     * dans le VertexPool, si bien que seuls les polygones produits sont alloués.
+     */
+    private class RawPolygonCollector implements ShapeVisitor {
+        private static final int INITIAL_PART_CAPACITY = 1024;
+        // Polygones de l'enregistrement en cours, null tant qu'aucune partie n'est terminée
+        private List<RawPolygon> polygons;
+        private double[] xs = new double[INITIAL_PART_CAPACITY];
+        private double[] ys = new double[INITIAL_PART_CAPACITY];
+        private int count;
+        private double offsetX;
+        private double offsetY;
+        private boolean inPart;
+        // Vrai si l'enregistrement en cours n'est pas de type polyligne ou polygone
+        private boolean skip;
+
+        @Override
+        public void beginRecord(int recordNumber, ShapeType shapeType, double minX, double minY, double maxX, double maxY, int numberOfParts, int numberOfPoints) {
+            polygons = null;
+            inPart = false;
+            skip = !isPolyType(shapeType);
+            offsetX = getMapMinX();
+            offsetY = getMapMinY();
+        }
+
+        @Override
+        public void part(int partIndex, int numberOfPoints) {
+            if (skip) {
+                return;
+            }
+            endPart();
+            if (xs.length < numberOfPoints) {
+                int capacity = Math.max(numberOfPoints, xs.length * 2);
+                xs = new double[capacity];
+                ys = new double[capacity];
+            }
+            count = 0;
+            inPart = true;
+        }
+
+        @Override
+        public void vertex(double x, double y) {
+            if (skip) {
+                return;
+            }
+            xs[count] = x - offsetX;
+            ys[count++] = y - offsetY;
+        }
+
+        @Override
+        public void endRecord() {
+            endPart();
+        }
+
+        private void endPart() {
+            if (!skip && inPart) {
+                if (polygons == null) {
+                    polygons = new ArrayList<>();
+                }
+                polygons.add(new RawPolygon(_vertexPool, xs, ys, 0, count, 0, 0));
+                inPart = false;
+            }
         }
-        return polygon;
     }
 }
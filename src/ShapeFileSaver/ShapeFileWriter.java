@@ -1,155 +1,198 @@
 package ShapeFileSaver;
 
 import Entities.Point;
+import Entities.Region;
 import GUI.HexPolygonContainer;
 import LoggerUtils.LoggerManager;
+import com.hexiong.jdbf.DBFWriter;
+import com.hexiong.jdbf.JDBFException;
+import com.hexiong.jdbf.JDBField;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 
 /**
  * File : Saver.ShapeFileWriter.java
  * Created by Guillaume Robert on 17/02/2016.
+ *
+ * Les enregistrements sont écrits au fil de l'eau dans le .shp au travers d'un petit tampon réutilisé ;
+ * l'index .shx et la table .dbf des informations de chaque région sont écrits dans la même passe.
+ * La taille du fichier et les limites, connues seulement à la fin, sont reportées dans les en-têtes en dernier.
  */
 public class ShapeFileWriter {
 
     private static final double NO_DATA = -1e38;
     private static final int INT = 4;
     private static final int DOUBLE = 8;
-    private static final int DEFAULT_RESIZE_QUANTITY = 10000;
-    private final ByteBuffer header;
+    private static final int HEADER_SIZE = 100;
+    private static final int RECORD_HEADER_SIZE = 2 * INT;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_DBF_FIELD_LENGTH = 254;
+    private static final String DBF_ENCODING = "UTF-8";
+    private final ByteBuffer body = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer index = ByteBuffer.allocateDirect(BUFFER_SIZE);
     private final ShapeFileBox limits;
-    private ByteBuffer body;
+    private FileChannel shpChannel;
+    private FileChannel shxChannel;
     private int recordCount = 0;
-    private int fileSize = 0;
-    private int bodySize = 10000;
-    private int bodySpaceLeft;
+    private int fileSize = HEADER_SIZE / 2;
 
     public ShapeFileWriter(File file, HexPolygonContainer hexPolygonContainer) {
-        header = ByteBuffer.allocate(100);
-        body = ByteBuffer.allocate(bodySize);
-        bodySpaceLeft = bodySize;
-        writeStaticHeaderInfos();
-        fileSize = 50;
         limits = new ShapeFileBox(NO_DATA, NO_DATA, NO_DATA, NO_DATA);
-        for (Point point : hexPolygonContainer.getHexNormalizeCoordCenter()) {
-            ShapeFilePoint[] points = new ShapeFilePoint[7];
+        String basePath = getBasePath(file);
+        DBFWriter dbfWriter = null;
+        try (FileChannel shp = openChannel(file); FileChannel shx = openChannel(new File(basePath + ".shx"))) {
+            shpChannel = shp;
+            shxChannel = shx;
+            shp.position(HEADER_SIZE);
+            shx.position(HEADER_SIZE);
+
+            List<String> fieldNames = getFieldNames(hexPolygonContainer);
+            JDBField[] fields = createFields(hexPolygonContainer, fieldNames);
+            dbfWriter = new DBFWriter(basePath + ".dbf", fields, DBF_ENCODING);
+            Files.write(new File(basePath + ".cpg").toPath(), DBF_ENCODING.getBytes(StandardCharsets.US_ASCII));
+
             final double[] hexEdgesX = {0.5, 0.5, 0.0, -0.5, -0.5, 0.0, 0.5};
             final double[] hexEdgesY = {0.25, -0.25, -0.5, -0.25, 0.25, 0.5, 0.25};
-            for (int j = 0; j < 7; ++j) {
-                points[j] = new ShapeFilePoint(point.x + hexEdgesX[j], -point.y + hexEdgesY[j]);
+            List<Point> centers = hexPolygonContainer.getHexNormalizeCoordCenter();
+            for (int i = 0; i < centers.size(); i++) {
+                Point point = centers.get(i);
+                ShapeFilePoint[] points = new ShapeFilePoint[7];
+                for (int j = 0; j < 7; ++j) {
+                    points[j] = new ShapeFilePoint(point.x + hexEdgesX[j], -point.y + hexEdgesY[j]);
+                }
+                ShapeFilePolygon polygon = new ShapeFilePolygon(new ShapeFileBox(point.x - 0.5, -point.y - 0.5, point.x + 0.5, -point.y + 0.5), new int[]{0}, points);
+                updateLimits(polygon.getBox());
+                writePolygon(polygon);
+                dbfWriter.addRecord(getRecord(hexPolygonContainer.getRegion(i), i, fieldNames, fields));
+            }
+            flush(body, shp);
+            flush(index, shx);
+
+            shp.write(createHeader(fileSize), 0);
+            shx.write(createHeader(HEADER_SIZE / 2 + recordCount * RECORD_HEADER_SIZE / 2), 0);
+            dbfWriter.close();
+            dbfWriter = null;
+            LoggerManager.getInstance().getLogger().log(Level.INFO, "ShapeFile saved to : " + file.getAbsolutePath() + " with a size of " + fileSize * 2 + " bytes");
+        } catch (IOException | JDBFException e) {
+            LoggerManager.getInstance().getLogger().log(Level.SEVERE, "Error while saving Shapefile to disk : " + e.getMessage());
+        } finally {
+            if (dbfWriter != null) {
+                try {
+                    dbfWriter.close();
+                } catch (JDBFException e) {
+                    LoggerManager.getInstance().getLogger().log(Level.SEVERE, "Error while saving Shapefile to disk : " + e.getMessage());
+                }
             }
-            ShapeFilePolygon polygon = new ShapeFilePolygon(new ShapeFileBox(-0.5 * point.x, -0.5 * point.y, 0.5 * point.x, 0.5 * point.y), new int[]{0}, points);
-            updateLimits(polygon.getBox());
-            writePolygon(polygon);
         }
-        writeDynamicHeaderInfos();
-        writeToFile(file);
     }
 
-    private void writeStaticHeaderInfos() {
+    private static FileChannel openChannel(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private static String getBasePath(File file) {
+        String path = file.getPath();
+        if (path.toLowerCase().endsWith(".shp")) {
+            return path.substring(0, path.length() - 4);
+        }
+        return path;
+    }
+
+    private ByteBuffer createHeader(int length) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
         header.order(ByteOrder.BIG_ENDIAN);
         header.putInt(0, 9994);
-        header.putInt(4, 0);
-        header.putInt(8, 0);
-        header.putInt(12, 0);
-        header.putInt(16, 0);
-        header.putInt(20, 0);
+        header.putInt(24, length);//File Length
         header.order(ByteOrder.LITTLE_ENDIAN);
         header.putInt(28, 1000);
         header.putInt(32, 5);
-        header.putDouble(68, NO_DATA);//ZMin
-        header.putDouble(76, NO_DATA);//ZMin
-        header.putDouble(84, NO_DATA);//MMax
-        header.putDouble(92, NO_DATA);//MMax
-    }
-
-    private void writeDynamicHeaderInfos() {
-        header.order(ByteOrder.BIG_ENDIAN);
-        header.putInt(24, fileSize);//File Length
-        header.order(ByteOrder.LITTLE_ENDIAN);
         header.putDouble(36, limits.getxMin());//XMin
         header.putDouble(44, limits.getyMin());//YMin
         header.putDouble(52, limits.getxMax());//XMax
         header.putDouble(60, limits.getyMax());//YMax
+        header.putDouble(68, NO_DATA);//ZMin
+        header.putDouble(76, NO_DATA);//ZMax
+        header.putDouble(84, NO_DATA);//MMin
+        header.putDouble(92, NO_DATA);//MMax
+        return header;
     }
 
-    private void writePolygon(ShapeFilePolygon polygon) {
+    private void writePolygon(ShapeFilePolygon polygon) throws IOException {
         //length : 16 bits words = 2 bytes // int : 4 bytes => 2 words //double 8 byte => 4 words
-        int length = 4;//header length
+        int length = 2;//shape type
         length += 16;//Box (4*4)
-        length += 4;//numparts && numpints length (2*2)
-        length += 2 * (polygon.getNumberParts() - 1);//parts length
-        length += 8 * polygon.getNumberPoints();//points list length (2 + 2*4)
+        length += 4;//numparts && numpoints length (2*2)
+        length += 2 * polygon.getNumberParts();//parts length
+        length += 8 * polygon.getNumberPoints();//points list length (2*4)
+        writeIndex(fileSize, length);
         writeRecordHeader(length);
-        if (bodySpaceLeft < ((3 + polygon.getNumberParts()) * INT + (DOUBLE * 4))) {
-            resizeBodyBuffer();
-        }
+        ensureSpace(body, shpChannel, (3 + polygon.getNumberParts()) * INT + DOUBLE * 4);
         body.order(ByteOrder.LITTLE_ENDIAN);
-        bodySpaceLeft -= INT;
         body.putInt(5);
         writeBox(polygon.getBox());
-        bodySpaceLeft -= INT;
         body.putInt(polygon.getNumberParts());
-        bodySpaceLeft -= INT;
         body.putInt(polygon.getNumberPoints());
         for (int part : polygon.getParts()) {
-            bodySpaceLeft -= INT;
             body.putInt(part);
         }
         for (ShapeFilePoint point : polygon.getPoints()) {
             writePoint(point);
         }
-        fileSize += length;
+        fileSize += RECORD_HEADER_SIZE / 2 + length;
     }
 
-    private void writePoint(ShapeFilePoint point) {
-        if (bodySpaceLeft < ((DOUBLE * 2))) {
-            resizeBodyBuffer();
-        }
+    private void writePoint(ShapeFilePoint point) throws IOException {
+        ensureSpace(body, shpChannel, DOUBLE * 2);
         body.order(ByteOrder.LITTLE_ENDIAN);
-        bodySpaceLeft -= DOUBLE;
         body.putDouble(point.getX());
-        bodySpaceLeft -= DOUBLE;
         body.putDouble(point.getY());
-
     }
 
     private void writeBox(ShapeFileBox box) {
-        if (bodySpaceLeft < DOUBLE * 4) {
-            resizeBodyBuffer();
-        }
-        bodySpaceLeft -= DOUBLE;
         body.putDouble(box.getxMin());
-        bodySpaceLeft -= DOUBLE;
         body.putDouble(box.getyMin());
-        bodySpaceLeft -= DOUBLE;
         body.putDouble(box.getxMax());
-        bodySpaceLeft -= DOUBLE;
         body.putDouble(box.getyMax());
     }
 
-    private void writeRecordHeader(int contentLength) {
-        if (bodySpaceLeft < INT * 2) {
-            resizeBodyBuffer();
-        }
+    private void writeRecordHeader(int contentLength) throws IOException {
+        ensureSpace(body, shpChannel, RECORD_HEADER_SIZE);
         body.order(ByteOrder.BIG_ENDIAN);
-        bodySpaceLeft -= INT;
         body.putInt(++recordCount);
-        bodySpaceLeft -= INT;
         body.putInt(contentLength);
     }
 
-    private void resizeBodyBuffer() {
-        ByteBuffer temp = ByteBuffer.allocate(bodySize + ShapeFileWriter.DEFAULT_RESIZE_QUANTITY);
-        temp.put(body);
-        body = temp;
-        bodySize = bodySize + DEFAULT_RESIZE_QUANTITY;
-        bodySpaceLeft += DEFAULT_RESIZE_QUANTITY;
+    private void writeIndex(int offset, int contentLength) throws IOException {
+        ensureSpace(index, shxChannel, RECORD_HEADER_SIZE);
+        index.order(ByteOrder.BIG_ENDIAN);
+        index.putInt(offset);
+        index.putInt(contentLength);
+    }
+
+    private static void ensureSpace(ByteBuffer buffer, FileChannel channel, int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush(buffer, channel);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
     }
 
     private void updateLimits(ShapeFileBox newPolygonLimits) {
@@ -167,16 +210,57 @@ public class ShapeFileWriter {
         }
     }
 
-    private void writeToFile(File file) {
-        try {
-            FileOutputStream outputStream =
-                    new FileOutputStream(file);
-            outputStream.write(header.array());
-            outputStream.write(body.array(), 0, bodySize - bodySpaceLeft);
-            outputStream.close();
-            LoggerManager.getInstance().getLogger().log(Level.INFO,"ShapeFile saved to : "+ file.getAbsolutePath() + " with a size of " + (header.array().length + bodySize - bodySpaceLeft) + " bytes");
-        } catch (IOException e) {
-            LoggerManager.getInstance().getLogger().log(Level.SEVERE, "Error while saving Shapefile to disk : " + e.getMessage());
+    private static List<String> getFieldNames(HexPolygonContainer hexPolygonContainer) {
+        Map<String, Boolean> names = new LinkedHashMap<>();
+        for (int i = 0; i < hexPolygonContainer.size(); i++) {
+            for (String name : hexPolygonContainer.getRegion(i).getInfos().keySet()) {
+                names.putIfAbsent(name, Boolean.TRUE);
+            }
+        }
+        return new ArrayList<>(names.keySet());
+    }
+
+    private static JDBField[] createFields(HexPolygonContainer hexPolygonContainer, List<String> fieldNames) throws JDBFException {
+        //un .dbf doit avoir au moins un champ : les hexagones sont alors simplement numérotés
+        if (fieldNames.isEmpty()) {
+            return new JDBField[]{new JDBField("ID", 'N', 10, 0)};
+        }
+        int[] lengths = new int[fieldNames.size()];
+        for (int i = 0; i < hexPolygonContainer.size(); i++) {
+            Region region = hexPolygonContainer.getRegion(i);
+            for (int j = 0; j < lengths.length; j++) {
+                lengths[j] = Math.max(lengths[j], toFieldValue(region.getInfo(fieldNames.get(j))).getBytes(StandardCharsets.UTF_8).length);
+            }
+        }
+        JDBField[] fields = new JDBField[lengths.length];
+        for (int j = 0; j < fields.length; j++) {
+            fields[j] = new JDBField(fieldNames.get(j), 'C', Math.max(1, lengths[j]), 0);
+        }
+        return fields;
+    }
+
+    private static Object[] getRecord(Region region, int index, List<String> fieldNames, JDBField[] fields) {
+        if (fieldNames.isEmpty()) {
+            return new Object[]{index};
+        }
+        Object[] record = new Object[fields.length];
+        for (int j = 0; j < record.length; j++) {
+            record[j] = toFieldValue(region.getInfo(fieldNames.get(j)));
+        }
+        return record;
+    }
+
+    /**
+     * Raccourcit une valeur pour qu'elle tienne dans un champ de caractères, sans couper de caractère
+     */
+    private static String toFieldValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        String result = value;
+        while (result.getBytes(StandardCharsets.UTF_8).length > MAX_DBF_FIELD_LENGTH) {
+            result = result.substring(0, result.offsetByCodePoints(result.length(), -1));
         }
+        return result;
     }
 }
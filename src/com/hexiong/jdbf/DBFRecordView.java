@@ -0,0 +1,132 @@
+/**
+ * <p>Title: java访问DBF文件的接口</p>
+ * <p>Description: 这个类用于表示DBF文件中一条记录的视图</p>
+ */
+
+package com.hexiong.jdbf;
+
+import java.util.Arrays;
+
+/**
+ * 映射文件中一条记录的视图。视图不复制记录的字节，每个字段只在被访问时才解码，
+ * 文本字段使用读取器根据语言驱动确定的字符集。同一个视图可以通过moveTo()
+ * 依次指向不同的记录，因此遍历整个文件只需要一个视图。
+ * 视图不是线程安全的，每个线程应使用自己的视图。
+ */
+public class DBFRecordView {
+  DBFRecordView(MappedDBFReader reader) {
+    this.reader = reader;
+    this.scratch = new byte[reader.getRecordLength()];
+    this.strings = new String[reader.getFieldCount()];
+    this.recordIndex = -1;
+  }
+
+  /**
+   * 将视图指向第i条记录
+   * @param i 记录序号，从0开始记
+   * @return 视图本身
+   * @throws JDBFException 序号超出范围时抛出
+   */
+  public DBFRecordView moveTo(int i) throws JDBFException {
+    recordPosition = reader.recordPosition(i);
+    recordIndex = i;
+    Arrays.fill(strings, null);
+    return this;
+  }
+
+  /**
+   * 获取当前记录的序号
+   * @return 记录序号，视图尚未指向记录时为-1
+   */
+  public int getRecordIndex() {
+    return recordIndex;
+  }
+
+  /**
+   * 判断当前记录是否被标记为删除
+   * @return 如果记录以0X2A开头，则返回真
+   * @throws JDBFException 视图尚未指向记录时抛出
+   */
+  public boolean isDeleted() throws JDBFException {
+    return reader.isDeleted(current());
+  }
+
+  /**
+   * 获取一个字段的文本，去掉首尾空格。结果在视图指向下一条记录之前被缓存。
+   * @param field 字段序号
+   * @return 字段的文本
+   * @throws JDBFException 视图尚未指向记录时抛出
+   */
+  public String getString(int field) throws JDBFException {
+    current();
+    if (strings[field] == null) {
+      strings[field] = reader.decode(recordPosition, field, scratch);
+    }
+    return strings[field];
+  }
+
+  /**
+   * 直接从字节中读取一个整数字段，不创建任何对象
+   * @param field 字段序号，字段类型必须是'N'或'F'
+   * @return 字段的值
+   * @throws JDBFException 字段不是数值类型或内容不是整数时抛出
+   */
+  public long getLong(int field) throws JDBFException {
+    current();
+    return reader.parseLong(recordPosition, field);
+  }
+
+  /**
+   * 直接从字节中读取一个数值字段
+   * @param field 字段序号，字段类型必须是'N'或'F'
+   * @return 字段的值
+   * @throws JDBFException 字段不是数值类型或内容不是数字时抛出
+   */
+  public double getDouble(int field) throws JDBFException {
+    current();
+    return reader.parseDouble(recordPosition, field);
+  }
+
+  /**
+   * 按字段类型解析一个字段，与MappedDBFReader.getRecord()的结果相同
+   * @param field 字段序号
+   * @return 对应的字段值类型对象
+   * @throws JDBFException 解析出错时抛出
+   * @see JDBField#parse(String)
+   */
+  public Object getValue(int field) throws JDBFException {
+    return reader.getField(field).parse(getString(field));
+  }
+
+  /**
+   * 比较一个字段与给定的值，不解码字段，也不创建任何对象
+   * @param field 字段序号
+   * @param value 用读取器的字符集编码、去掉首尾空格的值
+   * @return 如果相同则返回真
+   * @throws JDBFException 视图尚未指向记录时抛出
+   * @see MappedDBFReader#getCharset()
+   */
+  public boolean fieldEquals(int field, byte[] value) throws JDBFException {
+    current();
+    return reader.fieldEquals(recordPosition, field, value);
+  }
+
+  private int current() throws JDBFException {
+    if (recordIndex < 0) {
+      throw new JDBFException("The view does not point to any record.");
+    }
+    return recordIndex;
+  }
+
+  private final MappedDBFReader reader;
+  /**
+   * 解码文本字段时使用的缓冲区
+   */
+  private final byte scratch[];
+  /**
+   * 当前记录中已经解码的文本字段
+   */
+  private final String strings[];
+  private int recordIndex;
+  private int recordPosition;
+}
@@ -10,6 +10,13 @@
 package com.hexiong.jdbf;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.text.Format;
 import java.util.Calendar;
 
 /**
@@ -91,7 +98,30 @@ public class DBFWriter {
       JDBFException {
     fields = ajdbfield;
     try {
-      stream = new BufferedOutputStream(outputstream);
+      Charset charset = dbfEncoding != null ? Charset.forName(dbfEncoding) :
+          Charset.defaultCharset();
+      encoder = charset.newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    catch (IllegalArgumentException illegalargumentexception) {
+      throw new JDBFException(illegalargumentexception);
+    }
+    int recordLength = 1;
+    for (int j = 0; j < ajdbfield.length; j++) {
+      recordLength += ajdbfield[j].getLength();
+    }
+    record = new byte[recordLength];
+    record[0] = 32;
+    formats = new Format[ajdbfield.length];
+    for (int j = 0; j < ajdbfield.length; j++) {
+      formats[j] = ajdbfield[j].createFormat();
+    }
+    if (outputstream instanceof FileOutputStream) {
+      channel = ((FileOutputStream) outputstream).getChannel();
+    }
+    try {
+      stream = new BufferedOutputStream(outputstream, BUFFER_SIZE);
       writeHeader();
       for (int i = 0; i < ajdbfield.length; i++) {
         writeFieldHeader(ajdbfield[i]);
@@ -178,9 +208,10 @@ public class DBFWriter {
   }
 
   /**
-   * 写一条记录
+   * 写一条记录。记录先用复用的格式编码到复用的缓冲区中，再写入带缓冲的输出流，
+   * 不会每条记录都刷新到文件
    * @param aobj 以Object表示的记录值
-   * @throws JDBFException 写操作失败时抛出,如果编码类型不支持，也抛出异常
+   * @throws JDBFException 写操作失败时抛出
    */
   public void addRecord(Object aobj[]) throws JDBFException {
     if (aobj.length != fields.length) {
@@ -188,61 +219,77 @@ public class DBFWriter {
           "Error adding record: Wrong number of values. Expected " +
           fields.length + ", got " + aobj.length + ".");
     }
-    int i = 0;
-    for (int j = 0; j < fields.length; j++) {
-      i += fields[j].getLength();
-
-    }
-    byte abyte0[] = new byte[i];
-    int k = 0;
+    int k = 1;
     for (int l = 0; l < fields.length; l++) {
-      String s = fields[l].format(aobj[l]);
-      byte abyte1[];
-      try {
-        if (dbfEncoding != null) {
-          abyte1 = s.getBytes(dbfEncoding);
-        }
-        else {
-          abyte1 = s.getBytes();
-        }
-      }
-      catch (UnsupportedEncodingException unsupportedencodingexception) {
-        throw new JDBFException(unsupportedencodingexception);
-      }
-      for (int i1 = 0; i1 < fields[l].getLength(); i1++) {
-        abyte0[k + i1] = abyte1[i1];
-
-      }
+      encodeField(fields[l].format(aobj[l], formats[l]), k,
+                  fields[l].getLength());
       k += fields[l].getLength();
     }
 
     try {
-      stream.write(32);
-      stream.write(abyte0, 0, abyte0.length);
-      stream.flush();
+      stream.write(record, 0, record.length);
     }
     catch (IOException ioexception) {
       throw new JDBFException(ioexception);
     }
     recCount++;
   }
+
+  /**
+   * 批量写入记录
+   * @param records 记录列表，每条记录以Object数组表示
+   * @throws JDBFException 写操作失败时抛出
+   */
+  public void addRecords(Iterable<Object[]> records) throws JDBFException {
+    for (Object aobj[] : records) {
+      addRecord(aobj);
+    }
+  }
+
   /**
-   * 关闭文件写操作
+   * 将格式化后的字段值编码到记录缓冲区中，超出字段长度的部分被截断，
+   * 但不会截断一个字符的编码，不足的部分以空格填充
+   * @param s 格式化后的字段值
+   * @param offset 字段在记录中的位置
+   * @param length 字段长度
+   */
+  private void encodeField(String s, int offset, int length) {
+    ByteBuffer bytebuffer = ByteBuffer.wrap(record, offset, length);
+    encoder.reset();
+    encoder.encode(CharBuffer.wrap(s), bytebuffer, true);
+    encoder.flush(bytebuffer);
+    while (bytebuffer.hasRemaining()) {
+      bytebuffer.put((byte) 32);
+    }
+  }
+
+  /**
+   * 关闭文件写操作，并在文件头中写入记录个数
    * @throws JDBFException 出现IO异常时抛出
    */
   public void close() throws JDBFException {
     try {
       stream.write(26);
-      stream.close();
-      RandomAccessFile randomaccessfile = new RandomAccessFile(fileName, "rw");
-      randomaccessfile.seek(4L);
-      byte abyte0[] = new byte[4];
-      abyte0[0] = (byte) (recCount % 256);
-      abyte0[1] = (byte) ( (recCount / 256) % 256);
-      abyte0[2] = (byte) ( (recCount / 0x10000) % 256);
-      abyte0[3] = (byte) ( (recCount / 0x1000000) % 256);
-      randomaccessfile.write(abyte0, 0, abyte0.length);
-      randomaccessfile.close();
+      stream.flush();
+      ByteBuffer bytebuffer = ByteBuffer.allocate(4);
+      bytebuffer.put(0, (byte) (recCount % 256));
+      bytebuffer.put(1, (byte) ( (recCount / 256) % 256));
+      bytebuffer.put(2, (byte) ( (recCount / 0x10000) % 256));
+      bytebuffer.put(3, (byte) ( (recCount / 0x1000000) % 256));
+      if (channel != null) {
+        channel.write(bytebuffer, 4L);
+        stream.close();
+      }
+      else {
+        stream.close();
+        if (fileName != null) {
+          RandomAccessFile randomaccessfile = new RandomAccessFile(fileName,
+              "rw");
+          randomaccessfile.seek(4L);
+          randomaccessfile.write(bytebuffer.array(), 0, 4);
+          randomaccessfile.close();
+        }
+      }
     }
     catch (IOException ioexception) {
       throw new JDBFException(ioexception);
@@ -269,4 +316,24 @@ public class DBFWriter {
    * dbf文件的编码类型
    */
   private String dbfEncoding;
+  /**
+   * 字符集编码器，只在初始化时创建一次
+   */
+  private CharsetEncoder encoder;
+  /**
+   * 每个字段复用的数值或日期格式
+   */
+  private Format formats[];
+  /**
+   * 复用的记录缓冲区，第一个字节为删除标记
+   */
+  private byte record[];
+  /**
+   * 输出到文件时的通道，用于在关闭时写入记录个数
+   */
+  private FileChannel channel;
+  /**
+   * 输出流的缓冲区大小
+   */
+  private static final int BUFFER_SIZE = 65536;
 }
@@ -128,26 +128,55 @@ public class JDBField {
    * @throws JDBFException 当读取时发生错误时，抛出异常
    */
   public String format(Object obj) throws JDBFException {
+    return format(obj, createFormat());
+  }
+
+  /**
+   * 创建本字段的数值或日期格式，可以在格式化多个值时复用。
+   * 格式对象不是线程安全的
+   * @return 数值字段返回DecimalFormat，日期字段返回SimpleDateFormat，其他字段返回null
+   */
+  Format createFormat() {
+    if (type == 'N' || type == 'F') {
+      return new DecimalFormat(numberPattern());
+    }
+    if (type == 'D') {
+      return new SimpleDateFormat("yyyyMMdd");
+    }
+    return null;
+  }
+
+  private String numberPattern() {
+    StringBuffer stringbuffer = new StringBuffer(getLength());
+    for (int i = 0; i < getLength(); i++) {
+      stringbuffer.append("#");
+
+    }
+    if (getDecimalCount() > 0) {
+      stringbuffer.setCharAt(getLength() - getDecimalCount() - 1, '.');
+    }
+    return stringbuffer.toString();
+  }
+
+  /**
+   * 使用已创建的格式将对象格式化为一个字符串
+   * @param obj 流中的对象
+   * @param format 由createFormat()创建的格式
+   * @return 用于表示字段值的对象
+   * @throws JDBFException 当读取时发生错误时，抛出异常
+   */
+  String format(Object obj, Format format) throws JDBFException {
     if (type == 'N' || type == 'F') {
       if (obj == null) {
         obj = new Double(0.0D);
       }
       if (obj instanceof Number) {
         Number number = (Number) obj;
-        StringBuffer stringbuffer = new StringBuffer(getLength());
-        for (int i = 0; i < getLength(); i++) {
-          stringbuffer.append("#");
-
-        }
-        if (getDecimalCount() > 0) {
-          stringbuffer.setCharAt(getLength() - getDecimalCount() - 1, '.');
-        }
-        DecimalFormat decimalformat = new DecimalFormat(stringbuffer.toString());
-        String s1 = decimalformat.format(number);
+        String s1 = format.format(number);
         int k = getLength() - s1.length();
         if (k < 0) {
           throw new JDBFException("Value " + number +
-                                  " cannot fit in pattern: '" + stringbuffer +
+                                  " cannot fit in pattern: '" + numberPattern() +
                                   "'.");
         }
         StringBuffer stringbuffer2 = new StringBuffer(k);
@@ -203,8 +232,7 @@ public class JDBField {
       }
       if (obj instanceof Date) {
         Date date = (Date) obj;
-        SimpleDateFormat simpledateformat = new SimpleDateFormat("yyyyMMdd");
-        return simpledateformat.format(date);
+        return format.format(date);
       }
       else {
         throw new JDBFException("Expected a Date, got " + obj.getClass() + ".");
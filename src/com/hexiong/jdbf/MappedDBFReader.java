@@ -0,0 +1,676 @@
+/**
+ * <p>Title: java访问DBF文件的接口</p>
+ * <p>Description: 这个类用于通过内存映射随机读取DBF文件中的记录</p>
+ */
+
+package com.hexiong.jdbf;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * DBF文件的随机读取器。文件被映射到内存中，文件头只解析一次，
+ * 之后可以按序号在O(1)时间内读取任意一条记录，而不必读取它之前的记录。
+ * getRecord()不改变读取器的状态，可以被多个线程同时调用。
+ */
+public class MappedDBFReader {
+  private static final int HEADER_LENGTH = 32;
+  private static final int FIELD_DESCRIPTOR_LENGTH = 32;
+  private static final byte HEADER_TERMINATOR = 0X0D;
+  private static final byte DELETED_FLAG = 0X2A;
+  /**
+   * 并行读取时每个分块至少包含的记录数，避免小文件的任务开销
+   */
+  private static final int MIN_CHUNK_RECORDS = 256;
+  private static final double POWERS_OF_TEN[] = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+      1e13, 1e14, 1e15};
+
+  /**
+   * 构造函数
+   * @param s dbf文件的文件名
+   * @throws JDBFException 文件不存在或文件头无效时会抛出异常
+   */
+  public MappedDBFReader(String s) throws JDBFException {
+    this(new File(s));
+  }
+
+  /**
+   * 构造函数
+   * @param file dbf文件
+   * @throws JDBFException 文件不存在或文件头无效时会抛出异常
+   */
+  public MappedDBFReader(File file) throws JDBFException {
+    this(file, null);
+  }
+
+  /**
+   * 构造函数，指定字符集，例如从shapefile的.cpg文件中得到的字符集
+   * @param file dbf文件
+   * @param charset 字符集，为null时根据文件头中的语言驱动字节确定
+   * @throws JDBFException 文件不存在或文件头无效时会抛出异常
+   */
+  public MappedDBFReader(File file, Charset charset) throws JDBFException {
+    try (FileChannel channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new JDBFException("File too large to be mapped (" + size +
+                                " bytes).");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+    catch (IOException ioexception) {
+      throw new JDBFException(ioexception);
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    readHeader();
+    readFieldHeaders();
+    this.charset = charset != null ? charset : resolveCharset(languageDriver);
+  }
+
+  /**
+   * 根据文件头第29字节的语言驱动确定字符集，只在打开文件时做一次。
+   * 未知的语言驱动（包括0）使用平台默认字符集。
+   * @param ldid 语言驱动
+   * @return 字符集
+   */
+  static Charset resolveCharset(int ldid) {
+    String name;
+    switch (ldid) {
+      case 0x01: name = "IBM437"; break;
+      case 0x02: name = "IBM850"; break;
+      case 0x03:
+      case 0x57:
+      case 0x58:
+      case 0x59: name = "windows-1252"; break;
+      case 0x08:
+      case 0x66: name = "IBM865"; break;
+      case 0x13:
+      case 0x7B: name = "Shift_JIS"; break;
+      case 0x26:
+      case 0x65: name = "IBM866"; break;
+      case 0x4D:
+      case 0x7A: name = "GBK"; break;
+      case 0x4E:
+      case 0x79: name = "x-windows-949"; break;
+      case 0x4F:
+      case 0x78: name = "Big5"; break;
+      case 0x64: name = "IBM852"; break;
+      case 0x67: name = "IBM861"; break;
+      case 0x6A: name = "x-IBM737"; break;
+      case 0x6B: name = "IBM857"; break;
+      case 0x7C: name = "x-windows-874"; break;
+      case 0x7D: name = "windows-1255"; break;
+      case 0x7E: name = "windows-1256"; break;
+      case 0xC8: name = "windows-1250"; break;
+      case 0xC9: name = "windows-1251"; break;
+      case 0xCA: name = "windows-1254"; break;
+      case 0xCB: name = "windows-1253"; break;
+      default: return Charset.defaultCharset();
+    }
+    try {
+      return Charset.forName(name);
+    }
+    catch (IllegalArgumentException illegalargumentexception) {
+      return Charset.defaultCharset();
+    }
+  }
+
+  /**
+   * 读取文件头中的记录数、文件头长度和记录长度
+   * @throws JDBFException 文件头无效时抛出
+   */
+  private void readHeader() throws JDBFException {
+    if (buffer.limit() < HEADER_LENGTH) {
+      throw new JDBFException("Unexpected end of file reached.");
+    }
+    int count = buffer.getInt(4);
+    languageDriver = buffer.get(29) & 0xFF;
+    headerLength = buffer.getShort(8) & 0xFFFF;
+    recordLength = buffer.getShort(10) & 0xFFFF;
+    if (headerLength < HEADER_LENGTH + 1 || headerLength > buffer.limit()) {
+      throw new JDBFException("Invalid header length: " + headerLength);
+    }
+    if (recordLength < 1) {
+      throw new JDBFException("Invalid record length: " + recordLength);
+    }
+    if (count < 0) {
+      throw new JDBFException("Invalid record count: " + count);
+    }
+    //文件被截断时，只保留完整的记录
+    int available = (buffer.limit() - headerLength) / recordLength;
+    recordCount = Math.min(count, available);
+  }
+
+  /**
+   * 读取字段描述，直到遇到0X0D为止
+   * @throws JDBFException 字段描述无效时抛出
+   */
+  private void readFieldHeaders() throws JDBFException {
+    List<JDBField> list = new ArrayList<JDBField>();
+    List<Integer> offsets = new ArrayList<Integer>();
+    int offset = 1;
+    for (int pos = HEADER_LENGTH;
+         pos + FIELD_DESCRIPTOR_LENGTH <= headerLength &&
+         buffer.get(pos) != HEADER_TERMINATOR;
+         pos += FIELD_DESCRIPTOR_LENGTH) {
+      if (buffer.get(pos) == 0X00) {
+        continue;
+      }
+      int i = 0;
+      while (i < 10 && buffer.get(pos + i) != 0) {
+        i++;
+      }
+      byte abyte0[] = new byte[i];
+      for (int k = 0; k < i; k++) {
+        abyte0[k] = buffer.get(pos + k);
+      }
+      char c = (char) buffer.get(pos + 11);
+      int j = buffer.get(pos + 16) & 0xFF;
+      int k = buffer.get(pos + 17) & 0xFF;
+      JDBField field = new JDBField(new String(abyte0), c, j, k);
+      list.add(field);
+      offsets.add(offset);
+      offset += j;
+    }
+    if (offset > recordLength) {
+      throw new JDBFException("The fields are longer (" + offset +
+                              ") than the record length (" + recordLength +
+                              ").");
+    }
+    fields = list.toArray(new JDBField[list.size()]);
+    fieldOffsets = new int[offsets.size()];
+    for (int i = 0; i < fieldOffsets.length; i++) {
+      fieldOffsets[i] = offsets.get(i);
+    }
+  }
+
+  /**
+   * 获取记录个数，即文件头中记录的个数
+   * @return 记录个数
+   */
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * 获取每条记录的字节长度，包括删除标志
+   * @return 记录长度
+   */
+  public int getRecordLength() {
+    return recordLength;
+  }
+
+  /**
+   * 获取文件头的字节长度，即第一条记录的位置
+   * @return 文件头长度
+   */
+  public int getHeaderLength() {
+    return headerLength;
+  }
+
+  /**
+   * 获取文件头中的语言驱动字节
+   * @return 语言驱动
+   */
+  public int getLanguageDriver() {
+    return languageDriver;
+  }
+
+  /**
+   * 获取读取文本字段时使用的字符集
+   * @return 字符集
+   */
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * 创建一个可重复使用的记录视图，字段只在被访问时才解码
+   * @return 记录视图，尚未指向任何记录
+   * @see DBFRecordView
+   */
+  public DBFRecordView createView() {
+    return new DBFRecordView(this);
+  }
+
+  /**
+   * 获取有效字段个数
+   * @return 表中字段的个数
+   */
+  public int getFieldCount() {
+    return fields.length;
+  }
+
+  /**
+   * 获取第i个字段，i从0开始记
+   * @param i 字段序号
+   * @return JDBField 第i个字段
+   * @see JDBField
+   */
+  public JDBField getField(int i) {
+    return fields[i];
+  }
+
+  /**
+   * 判断一条记录是否被标记为删除
+   * @param i 记录序号，从0开始记
+   * @return 如果记录以0X2A开头，则返回真
+   * @throws JDBFException 序号超出范围时抛出
+   */
+  public boolean isDeleted(int i) throws JDBFException {
+    return buffer.get(recordPosition(i)) == DELETED_FLAG;
+  }
+
+  /**
+   * 读取第i条记录，使用本文件的字符集
+   * @param i 记录序号，从0开始记
+   * @return 一个对象数组
+   * @throws JDBFException 序号超出范围或字段内容无效时抛出
+   */
+  public Object[] getRecord(int i) throws JDBFException {
+    return getRecord(i, charset);
+  }
+
+  /**
+   * 读取第i条记录, 指定字符集
+   * @param i 记录序号，从0开始记
+   * @param charset 字符集
+   * @return 一个对象数组
+   * @throws JDBFException 序号超出范围或字段内容无效时抛出
+   */
+  public Object[] getRecord(int i, Charset charset) throws JDBFException {
+    byte record[] = new byte[recordLength];
+    ByteBuffer view = buffer.duplicate();
+    view.position(recordPosition(i));
+    view.get(record);
+
+    Object aobj[] = new Object[fields.length];
+    for (int j = 0; j < aobj.length; j++) {
+      aobj[j] = fields[j].parse(new String(record, fieldOffsets[j],
+                                           fields[j].getLength(), charset));
+    }
+    return aobj;
+  }
+
+  /**
+   * 读取第i条记录中指定的字段，其余字段的字节不会被解码
+   * @param i 记录序号，从0开始记
+   * @param fieldIndexes 需要读取的字段序号
+   * @return 一个对象数组，顺序与fieldIndexes相同
+   * @throws JDBFException 序号超出范围或字段内容无效时抛出
+   */
+  public Object[] getRecord(int i, int[] fieldIndexes) throws JDBFException {
+    int position = recordPosition(i);
+    Object aobj[] = new Object[fieldIndexes.length];
+    for (int j = 0; j < aobj.length; j++) {
+      JDBField field = fields[fieldIndexes[j]];
+      aobj[j] = field.parse(new String(fieldBytes(position, fieldIndexes[j]),
+                                       charset));
+    }
+    return aobj;
+  }
+
+  /**
+   * 并行读取所有记录中指定的字段。记录长度固定，记录区被切分为互不相关的分块，
+   * 在ForkJoinPool上分别解析
+   * @param fieldIndexes 需要读取的字段序号
+   * @return 按文件顺序排列的记录，每条记录的字段顺序与fieldIndexes相同
+   * @throws JDBFException 字段内容无效时抛出
+   */
+  public Object[][] getRecords(int[] fieldIndexes) throws JDBFException {
+    Object records[][] = new Object[recordCount][];
+    parseInParallel(new RecordParsingTask(records, null, fieldIndexes, 0,
+                                          recordCount));
+    return records;
+  }
+
+  /**
+   * 并行读取所有记录中指定的字段，按列存放
+   * @param fieldIndexes 需要读取的字段序号
+   * @return 每个字段一列，顺序与fieldIndexes相同，每列按文件顺序包含所有记录的值
+   * @throws JDBFException 字段内容无效时抛出
+   */
+  public Object[][] getColumns(int[] fieldIndexes) throws JDBFException {
+    Object columns[][] = new Object[fieldIndexes.length][recordCount];
+    parseInParallel(new RecordParsingTask(null, columns, fieldIndexes, 0,
+                                          recordCount));
+    return columns;
+  }
+
+  private void parseInParallel(RecordParsingTask task) throws JDBFException {
+    ForkJoinPool.commonPool().invoke(task);
+    JDBFException jdbfexception = task.failure.get();
+    if (jdbfexception != null) {
+      throw jdbfexception;
+    }
+  }
+
+  /**
+   * 解析[from, to)范围内记录的任务，范围过大时一分为二。
+   * 每条记录的位置只由其序号决定，因此各分块可以独立解析，结果直接写入各自的位置
+   */
+  private class RecordParsingTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final Object records[][];
+    private final Object columns[][];
+    private final int fieldIndexes[];
+    private final int from;
+    private final int to;
+    private final int threshold;
+    private final AtomicReference<JDBFException> failure;
+
+    RecordParsingTask(Object records[][], Object columns[][],
+                      int fieldIndexes[], int from, int to) {
+      this(records, columns, fieldIndexes, from, to,
+           Math.max(MIN_CHUNK_RECORDS,
+                    to / (ForkJoinPool.getCommonPoolParallelism() * 4)),
+           new AtomicReference<>());
+    }
+
+    private RecordParsingTask(Object records[][], Object columns[][],
+                              int fieldIndexes[], int from, int to,
+                              int threshold,
+                              AtomicReference<JDBFException> failure) {
+      this.records = records;
+      this.columns = columns;
+      this.fieldIndexes = fieldIndexes;
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+      this.failure = failure;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= threshold) {
+        for (int i = from; i < to && failure.get() == null; i++) {
+          try {
+            Object aobj[] = getRecord(i, fieldIndexes);
+            if (records != null) {
+              records[i] = aobj;
+            }
+            else {
+              for (int j = 0; j < aobj.length; j++) {
+                columns[j][i] = aobj[j];
+              }
+            }
+          }
+          catch (JDBFException jdbfexception) {
+            failure.compareAndSet(null, jdbfexception);
+          }
+        }
+      }
+      else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new RecordParsingTask(records, columns, fieldIndexes, from,
+                                        middle, threshold, failure),
+                  new RecordParsingTask(records, columns, fieldIndexes,
+                                        middle, to, threshold, failure));
+      }
+    }
+  }
+
+  /**
+   * 获取字段的序号
+   * @param s 字段名
+   * @return 字段序号，如果没有这个字段则返回-1
+   */
+  public int getFieldIndex(String s) {
+    for (int i = 0; i < fields.length; i++) {
+      if (fields[i].getName().equals(s)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 读取第i条记录中一个字段的文本，去掉首尾空格，不做类型转换
+   * @param i 记录序号，从0开始记
+   * @param field 字段序号
+   * @param charset 字符集
+   * @return 字段的文本
+   * @throws JDBFException 序号超出范围时抛出
+   */
+  public String getString(int i, int field, Charset charset) throws
+      JDBFException {
+    return new String(fieldBytes(recordPosition(i), field), charset).trim();
+  }
+
+  /**
+   * 读取第i条记录中一个字段的文本，使用本文件的字符集
+   * @param i 记录序号，从0开始记
+   * @param field 字段序号
+   * @return 字段的文本
+   * @throws JDBFException 序号超出范围时抛出
+   */
+  public String getString(int i, int field) throws JDBFException {
+    return getString(i, field, charset);
+  }
+
+  /**
+   * 直接从字节中读取一个整数字段，不创建任何对象。空字段返回0。
+   * @param i 记录序号，从0开始记
+   * @param field 字段序号，字段类型必须是'N'或'F'
+   * @return 字段的值
+   * @throws JDBFException 字段不是数值类型或内容不是整数时抛出
+   */
+  public long getLong(int i, int field) throws JDBFException {
+    return parseLong(recordPosition(i), field);
+  }
+
+  /**
+   * 直接从字节中读取一个数值字段。普通的小数不创建任何对象，
+   * 带指数或位数过多的值交给Double.parseDouble处理。空字段返回0。
+   * @param i 记录序号，从0开始记
+   * @param field 字段序号，字段类型必须是'N'或'F'
+   * @return 字段的值
+   * @throws JDBFException 字段不是数值类型或内容不是数字时抛出
+   */
+  public double getDouble(int i, int field) throws JDBFException {
+    return parseDouble(recordPosition(i), field);
+  }
+
+  long parseLong(int recordPosition, int field) throws JDBFException {
+    int position = numericFieldPosition(recordPosition, field);
+    int end = trimEnd(position, position + fields[field].getLength());
+    position = trimStart(position, end);
+    boolean negative = false;
+    if (position < end &&
+        (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+      negative = buffer.get(position) == '-';
+      position++;
+    }
+    long value = 0;
+    for (int p = position; p < end; p++) {
+      int digit = buffer.get(p) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new JDBFException("Field " + fields[field].getName() +
+                                " is not an integer: '" +
+                                decode(recordPosition, field, charset) + "'.");
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  double parseDouble(int recordPosition, int field) throws JDBFException {
+    int position = numericFieldPosition(recordPosition, field);
+    int end = trimEnd(position, position + fields[field].getLength());
+    position = trimStart(position, end);
+    boolean negative = false;
+    if (position < end &&
+        (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+      negative = buffer.get(position) == '-';
+      position++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int decimals = -1;
+    for (int p = position; p < end; p++) {
+      byte b = buffer.get(p);
+      if (b == '.' && decimals < 0) {
+        decimals = 0;
+        continue;
+      }
+      int digit = b - '0';
+      if (digit < 0 || digit > 9 || ++digits > 15) {
+        //指数形式或位数过多，无法精确计算
+        try {
+          return Double.parseDouble(decode(recordPosition, field, charset));
+        }
+        catch (NumberFormatException numberformatexception) {
+          throw new JDBFException(numberformatexception);
+        }
+      }
+      mantissa = mantissa * 10 + digit;
+      if (decimals >= 0) {
+        decimals++;
+      }
+    }
+    //15位以内的整数和10的幂都能被double精确表示，一次除法的结果是正确舍入的
+    double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] :
+        mantissa;
+    return negative ? -value : value;
+  }
+
+  private int numericFieldPosition(int recordPosition, int field) throws
+      JDBFException {
+    char type = fields[field].getType();
+    if (type != 'N' && type != 'F') {
+      throw new JDBFException("Field " + fields[field].getName() +
+                              " is not numeric. Got type: " + type);
+    }
+    return recordPosition + fieldOffsets[field];
+  }
+
+  /**
+   * 比较一个字段去掉首尾空格后的字节与给定的字节，不创建任何对象
+   * @param recordPosition 记录在文件中的位置
+   * @param field 字段序号
+   * @param value 用本文件字符集编码的值
+   * @return 如果相同则返回真
+   */
+  boolean fieldEquals(int recordPosition, int field, byte[] value) {
+    int position = recordPosition + fieldOffsets[field];
+    int end = trimEnd(position, position + fields[field].getLength());
+    position = trimStart(position, end);
+    if (end - position != value.length) {
+      return false;
+    }
+    for (int p = 0; p < value.length; p++) {
+      if (buffer.get(position + p) != value[p]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 将一个字段解码为字符串，去掉首尾空格
+   * @param recordPosition 记录在文件中的位置
+   * @param field 字段序号
+   * @param charset 字符集
+   * @return 字段的文本
+   */
+  String decode(int recordPosition, int field, Charset charset) {
+    return new String(fieldBytes(recordPosition, field), charset).trim();
+  }
+
+  /**
+   * 将一个字段解码为字符串，使用调用者提供的缓冲区，避免每次分配字节数组
+   * @param recordPosition 记录在文件中的位置
+   * @param field 字段序号
+   * @param scratch 长度至少为记录长度的缓冲区
+   * @return 字段的文本，去掉首尾空格
+   */
+  String decode(int recordPosition, int field, byte[] scratch) {
+    int position = recordPosition + fieldOffsets[field];
+    int end = trimEnd(position, position + fields[field].getLength());
+    position = trimStart(position, end);
+    if (position == end) {
+      return "";
+    }
+    ByteBuffer view = buffer.duplicate();
+    view.position(position);
+    view.get(scratch, 0, end - position);
+    return new String(scratch, 0, end - position, charset);
+  }
+
+  private int trimStart(int position, int end) {
+    while (position < end && (buffer.get(position) & 0xFF) <= ' ') {
+      position++;
+    }
+    return position;
+  }
+
+  private int trimEnd(int position, int end) {
+    while (end > position && (buffer.get(end - 1) & 0xFF) <= ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  private byte[] fieldBytes(int recordPosition, int field) {
+    byte abyte0[] = new byte[fields[field].getLength()];
+    ByteBuffer view = buffer.duplicate();
+    view.position(recordPosition + fieldOffsets[field]);
+    view.get(abyte0);
+    return abyte0;
+  }
+
+  int recordPosition(int i) throws JDBFException {
+    if (i < 0 || i >= recordCount) {
+      throw new JDBFException("Invalid record " + i +
+                              ". Available records [0:" + recordCount + "].");
+    }
+    return headerLength + i * recordLength;
+  }
+
+  /**
+   * 是否还有下一条记录，用于顺序读取
+   * @return 如果还有未读取的记录，则返回真
+   */
+  public boolean hasNextRecord() {
+    return nextRecord < recordCount;
+  }
+
+  /**
+   * 顺序读取下一条记录
+   * @return 一个对象数组
+   * @throws JDBFException
+   */
+  public Object[] nextRecord() throws JDBFException {
+    if (!hasNextRecord())
+      throw new JDBFException("No more records available.");
+    return getRecord(nextRecord++);
+  }
+
+  private final MappedByteBuffer buffer;
+  private JDBField fields[];
+  /**
+   * 每个字段在记录中的位置
+   */
+  private int fieldOffsets[];
+  private int recordCount;
+  private int headerLength;
+  private int recordLength;
+  private int languageDriver;
+  private final Charset charset;
+  /**
+   * 顺序读取时下一条记录的序号
+   */
+  private int nextRecord;
+}
@@ -0,0 +1,294 @@
+package org.nocrala.tools.gis.data.esri.shapefile;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+
+import org.nocrala.tools.gis.data.esri.shapefile.exception.DataStreamEOFException;
+import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileException;
+import org.nocrala.tools.gis.data.esri.shapefile.header.ShapeFileHeader;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.AbstractShape;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeHeader;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeType;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.LazyPolyShape;
+import org.nocrala.tools.gis.data.esri.shapefile.util.ByteBufferInputStream;
+import org.nocrala.tools.gis.data.esri.shapefile.util.ISUtil;
+
+/**
+ * <p>
+ * Reads the shapes of a memory-mapped ESRI Shape File in any order, using the
+ * offsets of its companion .shx file. When the .shx file is missing, the
+ * offsets are computed once by walking the record headers of the .shp file.
+ * </p>
+ *
+ * <p>
+ * getShape() does not change the state of the reader, so several threads can
+ * read records of the same file at the same time.
+ * </p>
+ */
+public class IndexedShapeFileReader {
+
+  private final MappedByteBuffer buffer;
+  private final ValidationPreferences rules;
+  private final ShapeFileHeader header;
+  private final ShapeFileIndex index;
+
+  // Constructors
+
+  /**
+   * Opens a Shape File and its index using the default validation preferences.
+   *
+   * @param file
+   *          the .shp file to be read.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed, according to the ESRI ShapeFile
+   *           specification.
+   * @throws IOException
+   *           if it's not possible to map the file or its index.
+   */
+  public IndexedShapeFileReader(final File file)
+      throws InvalidShapeFileException, IOException {
+    this(file, new ValidationPreferences());
+  }
+
+  /**
+   * Opens a Shape File and its index using the specified validation
+   * preferences.
+   *
+   * @param file
+   *          the .shp file to be read.
+   * @param preferences
+   *          Customized validation preferences.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed, according to the specified preferences.
+   * @throws IOException
+   *           if it's not possible to map the file or its index.
+   */
+  public IndexedShapeFileReader(final File file,
+      final ValidationPreferences preferences)
+      throws InvalidShapeFileException, IOException {
+    if (file == null) {
+      throw new RuntimeException("Must specify a non-null file to read from.");
+    }
+    if (preferences == null) {
+      throw new RuntimeException("Must specify non-null rules.");
+    }
+    this.buffer = ShapeFileReader.map(file);
+    this.rules = preferences;
+    this.header = new ShapeFileHeader(new ByteBufferInputStream(this.buffer),
+        this.rules);
+
+    File shx = findIndexFile(file);
+    if (shx != null) {
+      this.index = ShapeFileIndex.read(shx, this.buffer.limit(),
+          this.rules);
+    } else {
+      this.index = ShapeFileIndex.scan(this.buffer);
+    }
+  }
+
+  private static File findIndexFile(final File file) {
+    String name = file.getName();
+    int dot = name.lastIndexOf('.');
+    String base = dot > 0 ? name.substring(0, dot) : name;
+    for (String extension : new String[] { ".shx", ".SHX" }) {
+      File shx = new File(file.getParentFile(), base + extension);
+      if (shx.isFile()) {
+        return shx;
+      }
+    }
+    return null;
+  }
+
+  // Methods
+
+  /**
+   * Returns the number of records of the file.
+   *
+   * @return number of records.
+   */
+  public int recordCount() {
+    return this.index.recordCount();
+  }
+
+  /**
+   * Reads one shape, without reading the records before it.
+   *
+   * @param recordIndex
+   *          the 0-based index of the record; its record number is
+   *          recordIndex + 1.
+   * @return a shape object, of one of the classes listed in
+   *         ShapeFileReader.next().
+   * @throws InvalidShapeFileException
+   *           if the data is malformed.
+   * @throws IOException
+   *           if it's not possible to read the mapped file.
+   */
+  public AbstractShape getShape(final int recordIndex)
+      throws InvalidShapeFileException, IOException {
+    if (recordIndex < 0 || recordIndex >= recordCount()) {
+      throw new RuntimeException("Invalid record " + recordIndex
+          + ". Available records [0:" + recordCount() + "].");
+    }
+
+    ByteBufferInputStream is = new ByteBufferInputStream(this.buffer);
+    is.position(this.index.getOffset(recordIndex));
+
+    ShapeHeader shapeHeader;
+    try {
+      shapeHeader = new ShapeHeader(is, this.rules, recordIndex + 1);
+    } catch (DataStreamEOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The index points past the end of the file for record "
+          + recordIndex + ".");
+    }
+
+    return ShapeFileReader.readShape(shapeHeader, is, this.rules, this.header);
+  }
+
+  /**
+   * Reads the bounding box and the part table of a poly shape, leaving its
+   * coordinates in the mapped file until they are first accessed.
+   * 
+   * @param recordIndex
+   *          the 0-based index of the record.
+   * @return the lazy shape, or null for a null shape.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed, or if the record is not a Polyline,
+   *           Polygon or MultiPatch shape.
+   * @throws IOException
+   *           if it's not possible to read the mapped file.
+   */
+  public LazyPolyShape getLazyShape(final int recordIndex)
+      throws InvalidShapeFileException, IOException {
+    if (recordIndex < 0 || recordIndex >= recordCount()) {
+      throw new RuntimeException("Invalid record " + recordIndex
+          + ". Available records [0:" + recordCount() + "].");
+    }
+
+    ByteBufferInputStream is = new ByteBufferInputStream(this.buffer);
+    is.position(this.index.getOffset(recordIndex));
+
+    ShapeType shapeType = null;
+    try {
+      ShapeHeader shapeHeader = new ShapeHeader(is, this.rules,
+          recordIndex + 1);
+      shapeType = ShapeFileReader.parseShapeType(ISUtil.readLeInt(is),
+          this.rules, this.header);
+
+      switch (shapeType) {
+      case NULL:
+        return null;
+
+      case POLYLINE:
+      case POLYLINE_Z:
+      case POLYLINE_M:
+      case POLYGON:
+      case POLYGON_Z:
+      case POLYGON_M:
+      case MULTIPATCH:
+        return new LazyPolyShape(shapeHeader, shapeType, this.buffer,
+            is.position(), this.rules);
+
+      default:
+        throw new InvalidShapeFileException("Shape type '" + shapeType
+            + "' of record " + recordIndex + " can't be read lazily.");
+      }
+
+    } catch (DataStreamEOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The index points past the end of the file for record "
+          + recordIndex + ".");
+    } catch (EOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The data is too short for the shape (" + shapeType
+          + ") of record " + recordIndex + ".");
+    }
+  }
+
+  /**
+   * Tells whether a record intersects the query box of the validation
+   * preferences. Only the shape type and the bounding box of the record are
+   * read. Always true when no query box is set.
+   * 
+   * @param recordIndex
+   *          the 0-based index of the record.
+   * @return true if the record must be read.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed.
+   * @throws IOException
+   *           if it's not possible to read the mapped file.
+   */
+  public boolean isInQueryBox(final int recordIndex)
+      throws InvalidShapeFileException, IOException {
+    if (!this.rules.hasQueryBox()) {
+      return true;
+    }
+    if (recordIndex < 0 || recordIndex >= recordCount()) {
+      throw new RuntimeException("Invalid record " + recordIndex
+          + ". Available records [0:" + recordCount() + "].");
+    }
+
+    ByteBufferInputStream is = new ByteBufferInputStream(this.buffer);
+    is.position(this.index.getOffset(recordIndex) + 8);
+    try {
+      return ShapeFileReader.isInQueryBox(is, this.rules, this.header);
+    } catch (EOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The index points past the end of the file for record "
+          + recordIndex + ".");
+    }
+  }
+
+  /**
+   * Reads the bounding box of a record. Only the shape type and the bounding
+   * box of the record are read.
+   * 
+   * @param recordIndex
+   *          the 0-based index of the record.
+   * @return minX, minY, maxX and maxY of the record, or null for a NULL shape.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed.
+   * @throws IOException
+   *           if it's not possible to read the mapped file.
+   */
+  public double[] getBoundingBox(final int recordIndex)
+      throws InvalidShapeFileException, IOException {
+    if (recordIndex < 0 || recordIndex >= recordCount()) {
+      throw new RuntimeException("Invalid record " + recordIndex
+          + ". Available records [0:" + recordCount() + "].");
+    }
+
+    ByteBufferInputStream is = new ByteBufferInputStream(this.buffer);
+    is.position(this.index.getOffset(recordIndex) + 8);
+    try {
+      return ShapeFileReader.readBoundingBox(is, this.rules, this.header);
+    } catch (EOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The index points past the end of the file for record "
+          + recordIndex + ".");
+    }
+  }
+
+  // Getters
+
+  /**
+   * Returns the file's header.
+   *
+   * @return file's header.
+   */
+  public ShapeFileHeader getHeader() {
+    return header;
+  }
+
+  /**
+   * Returns the offset table of the records.
+   *
+   * @return the record index.
+   */
+  public ShapeFileIndex getIndex() {
+    return index;
+  }
+
+}
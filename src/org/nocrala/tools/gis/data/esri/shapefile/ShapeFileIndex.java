@@ -0,0 +1,163 @@
+package org.nocrala.tools.gis.data.esri.shapefile;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileException;
+import org.nocrala.tools.gis.data.esri.shapefile.header.ShapeFileHeader;
+import org.nocrala.tools.gis.data.esri.shapefile.util.ByteBufferInputStream;
+
+/**
+ * <p>
+ * Offset table of the records of a Shape File, as stored in its companion
+ * .shx file: for each record, the position of its header in the .shp file and
+ * the length of its content.
+ * </p>
+ *
+ * <p>
+ * When there is no .shx file, an equivalent table is built by walking the
+ * record headers of the .shp file, without decoding the shapes.
+ * </p>
+ */
+public class ShapeFileIndex {
+
+  private static final int HEADER_LENGTH = 100;
+  private static final int RECORD_HEADER_LENGTH = 8;
+
+  private final int[] offsets;
+  private final int[] contentLengths;
+
+  private ShapeFileIndex(final int[] offsets, final int[] contentLengths) {
+    this.offsets = offsets;
+    this.contentLengths = contentLengths;
+  }
+
+  /**
+   * Reads the index from a .shx file. Each entry is checked against the length
+   * of the .shp file, so that a truncated or corrupt index is reported here
+   * rather than when a record is read.
+   *
+   * @param shxFile
+   *          the .shx file.
+   * @param shpLength
+   *          the length of the .shp file, in bytes.
+   * @param rules
+   *          the validation preferences, used for the file header.
+   * @return the index.
+   * @throws InvalidShapeFileException
+   *           if the file is not a valid index, or if a record it describes
+   *           goes beyond the end of the .shp file.
+   * @throws IOException
+   *           if it's not possible to read the file.
+   */
+  public static ShapeFileIndex read(final File shxFile, final int shpLength,
+      final ValidationPreferences rules) throws InvalidShapeFileException,
+      IOException {
+    ByteBuffer shx = ShapeFileReader.map(shxFile).order(ByteOrder.BIG_ENDIAN);
+    new ShapeFileHeader(new ByteBufferInputStream(shx), rules);
+
+    int count = (shx.limit() - HEADER_LENGTH) / RECORD_HEADER_LENGTH;
+    int[] offsets = new int[count];
+    int[] contentLengths = new int[count];
+    for (int i = 0; i < count; i++) {
+      int position = HEADER_LENGTH + i * RECORD_HEADER_LENGTH;
+      long offset = shx.getInt(position) * 2L;
+      int contentLength = shx.getInt(position + 4);
+      if (offset < HEADER_LENGTH || contentLength < 0
+          || offset + RECORD_HEADER_LENGTH + contentLength * 2L > shpLength) {
+        throw new InvalidShapeFileException("Invalid index entry " + i
+            + ": the record at offset " + offset + " with content length "
+            + contentLength + " does not fit in the " + shpLength
+            + " bytes of the .shp file.");
+      }
+      offsets[i] = (int) offset;
+      contentLengths[i] = contentLength;
+    }
+    return new ShapeFileIndex(offsets, contentLengths);
+  }
+
+  /**
+   * Builds the index by walking the record headers of a mapped .shp file. Only
+   * the two ints of each record header are read.
+   *
+   * @param shp
+   *          the whole .shp file.
+   * @return the index.
+   * @throws InvalidShapeFileException
+   *           if a record goes beyond the end of the file.
+   */
+  public static ShapeFileIndex scan(final ByteBuffer shp)
+      throws InvalidShapeFileException {
+    ByteBufferInputStream is = new ByteBufferInputStream(shp);
+    int[] offsets = new int[64];
+    int[] contentLengths = new int[64];
+    int count = 0;
+
+    is.position(HEADER_LENGTH);
+    try {
+      while (is.remaining() >= RECORD_HEADER_LENGTH) {
+        int offset = is.position();
+        is.readBeInt();
+        int contentLength = is.readBeInt();
+        if (contentLength < 0 || contentLength * 2 > is.remaining()) {
+          throw new InvalidShapeFileException("Invalid content length "
+              + contentLength + " for the record at offset " + offset + ".");
+        }
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+          contentLengths = Arrays.copyOf(contentLengths, count * 2);
+        }
+        offsets[count] = offset;
+        contentLengths[count] = contentLength;
+        count++;
+        is.position(offset + RECORD_HEADER_LENGTH + contentLength * 2);
+      }
+    } catch (EOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The data is too short for the record that was being indexed.");
+    }
+
+    return new ShapeFileIndex(Arrays.copyOf(offsets, count),
+        Arrays.copyOf(contentLengths, count));
+  }
+
+  // Getters
+
+  /**
+   * Returns the number of records.
+   *
+   * @return number of records.
+   */
+  public int recordCount() {
+    return this.offsets.length;
+  }
+
+  /**
+   * Returns the position, in bytes from the start of the .shp file, of the
+   * header of a record.
+   *
+   * @param recordIndex
+   *          the 0-based index of the record.
+   * @return the position of the record header.
+   */
+  public int getOffset(final int recordIndex) {
+    return this.offsets[recordIndex];
+  }
+
+  /**
+   * Returns the content length of a record, in 16-bit words, as stored in its
+   * header.
+   *
+   * @param recordIndex
+   *          the 0-based index of the record.
+   * @return the content length of the record.
+   */
+  public int getContentLength(final int recordIndex) {
+    return this.contentLengths[recordIndex];
+  }
+
+}
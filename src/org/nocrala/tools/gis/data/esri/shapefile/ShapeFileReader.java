@@ -1,14 +1,18 @@
 package org.nocrala.tools.gis.data.esri.shapefile;
 
-import java.io.BufferedInputStream;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.nocrala.tools.gis.data.esri.shapefile.exception.DataStreamEOFException;
 import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileException;
 import org.nocrala.tools.gis.data.esri.shapefile.header.ShapeFileHeader;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.AbstractShape;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.Const;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeHeader;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeType;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.MultiPatchShape;
@@ -25,20 +29,24 @@ import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.PolygonZShape;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.PolylineMShape;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.PolylineShape;
 import org.nocrala.tools.gis.data.esri.shapefile.shape.shapes.PolylineZShape;
+import org.nocrala.tools.gis.data.esri.shapefile.util.ByteBufferInputStream;
+import org.nocrala.tools.gis.data.esri.shapefile.util.DecodingInputStream;
 import org.nocrala.tools.gis.data.esri.shapefile.util.ISUtil;
+import org.nocrala.tools.gis.data.esri.shapefile.util.ShapeDataInput;
 
 /**
- * Reads an ESRI Shape File from an InputStream and provides its contents as
- * simple Java objects.
+ * Reads an ESRI Shape File from an InputStream, or from a memory-mapped file,
+ * and provides its contents as simple Java objects.
  * 
  */
 public class ShapeFileReader {
 
-  private BufferedInputStream is;
+  private InputStream is;
   private ValidationPreferences rules;
 
   private ShapeFileHeader header;
   private boolean eofReached;
+  private int[] partStarts = new int[16];
 
   // Constructors
 
@@ -95,6 +103,82 @@ public class ShapeFileReader {
     initialize(is, preferences);
   }
 
+  /**
+   * <p>
+   * Reads a Shape File by memory-mapping it, using the default validation
+   * preferences. Headers and coordinates are decoded straight from the mapped
+   * buffer, which is much faster than reading through an InputStream.
+   * </p>
+   * 
+   * <p>
+   * The constructor will automatically read the header of the file. Thereafter,
+   * use the method next() to read all shapes.
+   * </p>
+   * 
+   * @param file
+   *          the Shape File to be read.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed, according to the ESRI ShapeFile
+   *           specification.
+   * @throws IOException
+   *           if it's not possible to map the file.
+   */
+  public ShapeFileReader(final File file) throws InvalidShapeFileException,
+      IOException {
+    this(file, new ValidationPreferences());
+  }
+
+  /**
+   * <p>
+   * Reads a Shape File by memory-mapping it, using the specified validation
+   * preferences.
+   * </p>
+   * 
+   * <p>
+   * The constructor will automatically read the header of the file. Thereafter,
+   * use the method next() to read all shapes.
+   * </p>
+   * 
+   * @param file
+   *          the Shape File to be read.
+   * @param preferences
+   *          Customized validation preferences.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed, according to the specified preferences.
+   * @throws IOException
+   *           if it's not possible to map the file.
+   */
+  public ShapeFileReader(final File file,
+      final ValidationPreferences preferences)
+      throws InvalidShapeFileException, IOException {
+    if (file == null) {
+      throw new RuntimeException("Must specify a non-null file to read from.");
+    }
+    initialize(new ByteBufferInputStream(map(file)), preferences);
+  }
+
+  /**
+   * Maps the whole file in memory, read only. The mapping stays valid after
+   * the channel is closed.
+   * 
+   * @param file
+   *          the file to map.
+   * @return the mapped buffer.
+   * @throws IOException
+   *           if it's not possible to map the file.
+   */
+  static MappedByteBuffer map(final File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("File too large to be mapped (" + size
+            + " bytes).");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+  }
+
   private void initialize(final InputStream is,
       final ValidationPreferences preferences) throws IOException,
       InvalidShapeFileException {
@@ -105,7 +189,11 @@ public class ShapeFileReader {
     if (preferences == null) {
       throw new RuntimeException("Must specify non-null rules.");
     }
-    this.is = new BufferedInputStream(is);
+    if (is instanceof ShapeDataInput) {
+      this.is = is;
+    } else {
+      this.is = new DecodingInputStream(is);
+    }
     this.rules = preferences;
     this.eofReached = false;
     this.header = new ShapeFileHeader(this.is, this.rules);
@@ -149,44 +237,53 @@ public class ShapeFileReader {
       return null;
     }
 
-    this.rules.advanceOneRecordNumber();
-
-    // Shape header
+    // Shape header; records outside the query box are skipped
 
     ShapeHeader shapeHeader = null;
-    ShapeType shapeType = null;
 
-    try {
-      shapeHeader = new ShapeHeader(this.is, this.rules);
-    } catch (DataStreamEOFException e) {
-      this.eofReached = true;
-      return null;
-    }
+    do {
+      this.rules.advanceOneRecordNumber();
+      try {
+        shapeHeader = new ShapeHeader(this.is, this.rules);
+      } catch (DataStreamEOFException e) {
+        this.eofReached = true;
+        return null;
+      }
+    } while (skipIfOutsideQueryBox(shapeHeader.getContentLength()));
+
+    return readShape(shapeHeader, this.is, this.rules, this.header);
+  }
+
+  /**
+   * Reads the body of one shape, right after its record header. Used by
+   * next() and by IndexedShapeFileReader, which positions the stream on a
+   * record itself.
+   * 
+   * @param shapeHeader
+   *          the record header, already read.
+   * @param is
+   *          the stream, positioned on the shape type of the record.
+   * @param rules
+   *          the validation preferences.
+   * @param fileHeader
+   *          the header of the file.
+   * @return the shape object.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed.
+   * @throws IOException
+   *           if it's not possible to read from the InputStream.
+   */
+  static AbstractShape readShape(final ShapeHeader shapeHeader,
+      final InputStream is, final ValidationPreferences rules,
+      final ShapeFileHeader fileHeader) throws IOException,
+      InvalidShapeFileException {
+
+    ShapeType shapeType = null;
 
     // Shape body
 
     try {
-      int typeId = ISUtil.readLeInt(this.is);
-      if (this.rules.getForceShapeType() != null) {
-        shapeType = this.rules.getForceShapeType();
-      } else {
-        shapeType = ShapeType.parse(typeId);
-        if (shapeType == null) {
-          throw new InvalidShapeFileException("Invalid shape type '" + typeId
-              + "'. " + "The shape type can be forced using "
-              + "the additional constructor with " + "ValidationRules.");
-        }
-        if (!this.rules.isAllowMultipleShapeTypes()
-            && !this.header.getShapeType().equals(shapeType)) {
-          throw new InvalidShapeFileException("Invalid shape type '"
-              + shapeType + "'. All included shapes must have the same "
-              + "type as the one specified on the file header ("
-              + this.header.getShapeType()
-              + "). This validation can be disabled using the "
-              + "additional constructor with ValidationRules.");
-        }
-      }
-
+      shapeType = parseShapeType(ISUtil.readLeInt(is), rules, fileHeader);
     } catch (EOFException e) {
       throw new InvalidShapeFileException("Unexpected end of stream. "
           + "The data is too short for the shape that was being read.");
@@ -195,38 +292,38 @@ public class ShapeFileReader {
     try {
       switch (shapeType) {
       case NULL:
-        return new NullShape(shapeHeader, shapeType, this.is, this.rules);
+        return new NullShape(shapeHeader, shapeType, is, rules);
 
       case POINT:
-        return new PointShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PointShape(shapeHeader, shapeType, is, rules);
       case POLYLINE:
-        return new PolylineShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PolylineShape(shapeHeader, shapeType, is, rules);
       case POLYGON:
-        return new PolygonShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PolygonShape(shapeHeader, shapeType, is, rules);
       case MULTIPOINT:
-        return new MultiPointPlainShape(shapeHeader, shapeType, this.is,
-            this.rules);
+        return new MultiPointPlainShape(shapeHeader, shapeType, is,
+            rules);
 
       case POINT_Z:
-        return new PointZShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PointZShape(shapeHeader, shapeType, is, rules);
       case POLYLINE_Z:
-        return new PolylineZShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PolylineZShape(shapeHeader, shapeType, is, rules);
       case POLYGON_Z:
-        return new PolygonZShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PolygonZShape(shapeHeader, shapeType, is, rules);
       case MULTIPOINT_Z:
-        return new MultiPointZShape(shapeHeader, shapeType, this.is, this.rules);
+        return new MultiPointZShape(shapeHeader, shapeType, is, rules);
 
       case POINT_M:
-        return new PointMShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PointMShape(shapeHeader, shapeType, is, rules);
       case POLYLINE_M:
-        return new PolylineMShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PolylineMShape(shapeHeader, shapeType, is, rules);
       case POLYGON_M:
-        return new PolygonMShape(shapeHeader, shapeType, this.is, this.rules);
+        return new PolygonMShape(shapeHeader, shapeType, is, rules);
       case MULTIPOINT_M:
-        return new MultiPointMShape(shapeHeader, shapeType, this.is, this.rules);
+        return new MultiPointMShape(shapeHeader, shapeType, is, rules);
 
       case MULTIPATCH:
-        return new MultiPatchShape(shapeHeader, shapeType, this.is, this.rules);
+        return new MultiPatchShape(shapeHeader, shapeType, is, rules);
 
       default:
         throw new InvalidShapeFileException("Unexpected shape type '"
@@ -240,6 +337,374 @@ public class ShapeFileReader {
     }
   }
 
+  static ShapeType parseShapeType(final int typeId,
+      final ValidationPreferences rules, final ShapeFileHeader fileHeader)
+      throws InvalidShapeFileException {
+    if (rules.getForceShapeType() != null) {
+      return rules.getForceShapeType();
+    }
+    ShapeType shapeType = ShapeType.parse(typeId);
+    if (shapeType == null) {
+      throw new InvalidShapeFileException("Invalid shape type '" + typeId
+          + "'. " + "The shape type can be forced using "
+          + "the additional constructor with " + "ValidationRules.");
+    }
+    // NULL shapes are allowed in a file of any type
+    if (!rules.isAllowMultipleShapeTypes() && shapeType != ShapeType.NULL
+        && !fileHeader.getShapeType().equals(shapeType)) {
+      throw new InvalidShapeFileException("Invalid shape type '" + shapeType
+          + "'. All included shapes must have the same "
+          + "type as the one specified on the file header ("
+          + fileHeader.getShapeType()
+          + "). This validation can be disabled using the "
+          + "additional constructor with ValidationRules.");
+    }
+    return shapeType;
+  }
+
+  // Visitor
+
+  /**
+   * Decodes all the remaining records, pushing their content to a visitor.
+   * 
+   * @param visitor
+   *          the visitor receiving the records.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed.
+   * @throws IOException
+   *           if it's not possible to read from the InputStream.
+   */
+  public void accept(final ShapeVisitor visitor) throws IOException,
+      InvalidShapeFileException {
+    while (nextRecord(visitor)) {
+      // the visitor receives everything
+    }
+  }
+
+  /**
+   * <p>
+   * Decodes one record and pushes its content to a visitor, instead of
+   * building a shape object. Coordinates go straight from the input to the
+   * visitor; nothing is allocated per record.
+   * </p>
+   * 
+   * <p>
+   * This method and next() read from the same position and can be mixed.
+   * </p>
+   * 
+   * @param visitor
+   *          the visitor receiving the record.
+   * @return false when the end of the stream is reached.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed.
+   * @throws IOException
+   *           if it's not possible to read from the InputStream.
+   */
+  public boolean nextRecord(final ShapeVisitor visitor) throws IOException,
+      InvalidShapeFileException {
+
+    if (this.eofReached) {
+      return false;
+    }
+
+    // Record header; records outside the query box are skipped
+
+    int recordNumber;
+    int contentLength;
+    do {
+      this.rules.advanceOneRecordNumber();
+      try {
+        recordNumber = ISUtil.readBeIntMaybeEOF(this.is);
+      } catch (DataStreamEOFException e) {
+        this.eofReached = true;
+        return false;
+      }
+      if (!this.rules.isAllowBadRecordNumbers()
+          && recordNumber != this.rules.getExpectedRecordNumber()) {
+        throw new InvalidShapeFileException("Invalid record number. Expected "
+            + this.rules.getExpectedRecordNumber() + " but found "
+            + recordNumber + ".");
+      }
+      try {
+        contentLength = ISUtil.readBeInt(this.is);
+      } catch (EOFException e) {
+        throw new InvalidShapeFileException("Unexpected end of stream. "
+            + "The data is too short for the record header that was being "
+            + "read.");
+      }
+    } while (skipIfOutsideQueryBox(contentLength));
+
+    ShapeType shapeType = null;
+    try {
+      shapeType = parseShapeType(ISUtil.readLeInt(this.is), this.rules,
+          this.header);
+
+      int read = 4 + visitBody(recordNumber, shapeType, visitor);
+      int left = contentLength * 2 - read;
+      if (left < 0 && !this.rules.isAllowBadContentLength()) {
+        throw new InvalidShapeFileException("Invalid " + shapeType
+            + " shape header's content length. Expected at least "
+            + (read / 2) + " 16-bit words but found " + contentLength + ". "
+            + Const.PREFERENCES);
+      }
+      skipFully(left);
+
+    } catch (EOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The data is too short for the last shape (" + shapeType
+          + ") that was being read.");
+    }
+    return true;
+  }
+
+  /**
+   * Decodes the body of a record after its shape type.
+   * 
+   * @return the number of bytes read.
+   */
+  private int visitBody(final int recordNumber, final ShapeType shapeType,
+      final ShapeVisitor visitor) throws IOException,
+      InvalidShapeFileException {
+
+    switch (shapeType) {
+    case NULL:
+      visitor.beginRecord(recordNumber, shapeType, Double.NaN, Double.NaN,
+          Double.NaN, Double.NaN, 0, 0);
+      visitor.endRecord();
+      return 0;
+
+    case POINT:
+    case POINT_Z:
+    case POINT_M: {
+      double x = ISUtil.readLeDouble(this.is);
+      double y = ISUtil.readLeDouble(this.is);
+      visitor.beginRecord(recordNumber, shapeType, x, y, x, y, 1, 1);
+      visitor.part(0, 1);
+      visitor.vertex(x, y);
+      visitor.endRecord();
+      return 8 * 2;
+    }
+
+    case MULTIPOINT:
+    case MULTIPOINT_Z:
+    case MULTIPOINT_M: {
+      double minX = ISUtil.readLeDouble(this.is);
+      double minY = ISUtil.readLeDouble(this.is);
+      double maxX = ISUtil.readLeDouble(this.is);
+      double maxY = ISUtil.readLeDouble(this.is);
+      int numberOfPoints = ISUtil.readLeInt(this.is);
+      checkNumberOfPoints(shapeType, numberOfPoints);
+
+      visitor.beginRecord(recordNumber, shapeType, minX, minY, maxX, maxY,
+          numberOfPoints > 0 ? 1 : 0, numberOfPoints);
+      if (numberOfPoints > 0) {
+        visitor.part(0, numberOfPoints);
+      }
+      for (int i = 0; i < numberOfPoints; i++) {
+        double x = ISUtil.readLeDouble(this.is);
+        double y = ISUtil.readLeDouble(this.is);
+        visitor.vertex(x, y);
+      }
+      visitor.endRecord();
+      return 8 * 4 + 4 + numberOfPoints * 8 * 2;
+    }
+
+    case POLYLINE:
+    case POLYLINE_Z:
+    case POLYLINE_M:
+    case POLYGON:
+    case POLYGON_Z:
+    case POLYGON_M:
+    case MULTIPATCH: {
+      double minX = ISUtil.readLeDouble(this.is);
+      double minY = ISUtil.readLeDouble(this.is);
+      double maxX = ISUtil.readLeDouble(this.is);
+      double maxY = ISUtil.readLeDouble(this.is);
+      int numberOfParts = ISUtil.readLeInt(this.is);
+      int numberOfPoints = ISUtil.readLeInt(this.is);
+      if (numberOfParts < 0 || numberOfParts > numberOfPoints) {
+        throw new InvalidShapeFileException("Invalid " + shapeType
+            + " shape number of parts. It should be between zero and "
+            + "the number of points (" + numberOfPoints + "), but found "
+            + numberOfParts + ". " + Const.PREFERENCES);
+      }
+      checkNumberOfPoints(shapeType, numberOfPoints);
+
+      if (this.partStarts.length < numberOfParts + 1) {
+        this.partStarts = new int[numberOfParts + 1];
+      }
+      for (int i = 0; i < numberOfParts; i++) {
+        this.partStarts[i] = ISUtil.readLeInt(this.is);
+        if (this.partStarts[i] < (i == 0 ? 0 : this.partStarts[i - 1])
+            || this.partStarts[i] > numberOfPoints) {
+          throw new InvalidShapeFileException("Malformed content. Part start ("
+              + this.partStarts[i] + ") is out of range. Valid range of "
+              + "points is [0:" + numberOfPoints + "].");
+        }
+      }
+      this.partStarts[numberOfParts] = numberOfPoints;
+      int read = 8 * 4 + 4 + 4 + numberOfParts * 4;
+      if (shapeType == ShapeType.MULTIPATCH) {
+        for (int i = 0; i < numberOfParts; i++) {
+          ISUtil.readLeInt(this.is);
+        }
+        read += numberOfParts * 4;
+      }
+
+      visitor.beginRecord(recordNumber, shapeType, minX, minY, maxX, maxY,
+          numberOfParts, numberOfPoints);
+      int part = 0;
+      for (int i = 0; i < numberOfPoints; i++) {
+        while (part < numberOfParts && this.partStarts[part] == i) {
+          visitor.part(part, this.partStarts[part + 1] - i);
+          part++;
+        }
+        double x = ISUtil.readLeDouble(this.is);
+        double y = ISUtil.readLeDouble(this.is);
+        if (part > 0) {
+          visitor.vertex(x, y);
+        }
+      }
+      while (part < numberOfParts) {
+        visitor.part(part, 0);
+        part++;
+      }
+      visitor.endRecord();
+      return read + numberOfPoints * 8 * 2;
+    }
+
+    default:
+      throw new InvalidShapeFileException("Unexpected shape type '"
+          + shapeType + "'");
+    }
+  }
+
+  private void checkNumberOfPoints(final ShapeType shapeType,
+      final int numberOfPoints) throws InvalidShapeFileException {
+    if (numberOfPoints < 0) {
+      throw new InvalidShapeFileException("Invalid " + shapeType
+          + " shape number of points. "
+          + "It should be a number greater than zero, but found "
+          + numberOfPoints + ". " + Const.PREFERENCES);
+    }
+    if (!this.rules.isAllowUnlimitedNumberOfPointsPerShape()
+        && numberOfPoints > this.rules.getMaxNumberOfPointsPerShape()) {
+      throw new InvalidShapeFileException("Invalid " + shapeType
+          + " shape number of points. "
+          + "The allowed maximum number of points was "
+          + this.rules.getMaxNumberOfPointsPerShape() + " but found "
+          + numberOfPoints + ". " + Const.PREFERENCES);
+    }
+  }
+
+  /**
+   * When a query box is set, peeks at the shape type and bounding box of the
+   * record the stream is positioned on, and skips the whole record if it lies
+   * outside. The points are never read for a skipped record.
+   * 
+   * @return true if the record was skipped.
+   */
+  private boolean skipIfOutsideQueryBox(final int contentLength)
+      throws IOException, InvalidShapeFileException {
+    if (!this.rules.hasQueryBox()) {
+      return false;
+    }
+    try {
+      this.is.mark(4 + 8 * 4);
+      boolean inside = isInQueryBox(this.is, this.rules, this.header);
+      this.is.reset();
+      if (inside) {
+        return false;
+      }
+      skipFully(contentLength * 2L);
+      return true;
+    } catch (EOFException e) {
+      throw new InvalidShapeFileException("Unexpected end of stream. "
+          + "The data is too short for the record that was being skipped.");
+    }
+  }
+
+  /**
+   * Reads the shape type and the bounding box of a record, and checks them
+   * against the query box of the rules. Used by ShapeFileReader and by
+   * IndexedShapeFileReader.
+   * 
+   * @param is
+   *          the stream, positioned on the shape type of the record.
+   * @param rules
+   *          the validation preferences, with the query box.
+   * @param fileHeader
+   *          the header of the file.
+   * @return true if the record intersects the query box.
+   * @throws InvalidShapeFileException
+   *           if the shape type is invalid.
+   * @throws IOException
+   *           if it's not possible to read from the InputStream.
+   */
+  static boolean isInQueryBox(final InputStream is,
+      final ValidationPreferences rules, final ShapeFileHeader fileHeader)
+      throws IOException, InvalidShapeFileException {
+    double[] box = readBoundingBox(is, rules, fileHeader);
+    return box != null && rules.intersectsQueryBox(box[0], box[1], box[2], box[3]);
+  }
+
+  /**
+   * Reads the shape type and the bounding box of a record. Used by
+   * isInQueryBox() and by IndexedShapeFileReader.
+   * 
+   * @param is
+   *          the stream, positioned on the shape type of the record.
+   * @param rules
+   *          the validation preferences.
+   * @param fileHeader
+   *          the header of the file.
+   * @return minX, minY, maxX and maxY of the record, or null for a NULL shape.
+   * @throws InvalidShapeFileException
+   *           if the shape type is invalid.
+   * @throws IOException
+   *           if it's not possible to read from the InputStream.
+   */
+  static double[] readBoundingBox(final InputStream is,
+      final ValidationPreferences rules, final ShapeFileHeader fileHeader)
+      throws IOException, InvalidShapeFileException {
+    ShapeType shapeType = parseShapeType(ISUtil.readLeInt(is), rules,
+        fileHeader);
+    switch (shapeType) {
+    case NULL:
+      return null;
+
+    case POINT:
+    case POINT_Z:
+    case POINT_M: {
+      double x = ISUtil.readLeDouble(is);
+      double y = ISUtil.readLeDouble(is);
+      return new double[] { x, y, x, y };
+    }
+
+    default: {
+      double minX = ISUtil.readLeDouble(is);
+      double minY = ISUtil.readLeDouble(is);
+      double maxX = ISUtil.readLeDouble(is);
+      double maxY = ISUtil.readLeDouble(is);
+      return new double[] { minX, minY, maxX, maxY };
+    }
+    }
+  }
+
+  private void skipFully(final long length) throws IOException {
+    long left = length;
+    while (left > 0) {
+      long skipped = this.is.skip(left);
+      if (skipped <= 0) {
+        if (this.is.read() < 0) {
+          throw new EOFException();
+        }
+        skipped = 1;
+      }
+      left -= skipped;
+    }
+  }
+
   // Getters
 
   /**
@@ -0,0 +1,69 @@
+package org.nocrala.tools.gis.data.esri.shapefile;
+
+import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeType;
+
+/**
+ * <p>
+ * Receives the content of a Shape File record by record, as it is decoded by
+ * ShapeFileReader.nextRecord() or ShapeFileReader.accept(). No shape object is
+ * built: coordinates are pushed straight from the input to the visitor.
+ * </p>
+ *
+ * <p>
+ * For each record the calls are: beginRecord(), then for each part part()
+ * followed by its vertex() calls, then endRecord(). Points and multipoints are
+ * reported as a single part. Z and M values are skipped.
+ * </p>
+ */
+public interface ShapeVisitor {
+
+  /**
+   * Starts a record.
+   *
+   * @param recordNumber
+   *          the record number, starting at 1.
+   * @param shapeType
+   *          the type of the shape.
+   * @param minX
+   *          bounding box of the shape; NaN for a null shape.
+   * @param minY
+   *          bounding box of the shape; NaN for a null shape.
+   * @param maxX
+   *          bounding box of the shape; NaN for a null shape.
+   * @param maxY
+   *          bounding box of the shape; NaN for a null shape.
+   * @param numberOfParts
+   *          number of parts that will be reported.
+   * @param numberOfPoints
+   *          total number of vertices that will be reported.
+   */
+  void beginRecord(int recordNumber, ShapeType shapeType, double minX,
+      double minY, double maxX, double maxY, int numberOfParts,
+      int numberOfPoints);
+
+  /**
+   * Starts a part of the current record.
+   *
+   * @param partIndex
+   *          the index of the part in the record.
+   * @param numberOfPoints
+   *          number of vertices of the part.
+   */
+  void part(int partIndex, int numberOfPoints);
+
+  /**
+   * Reports a vertex of the current part.
+   *
+   * @param x
+   *          X coordinate.
+   * @param y
+   *          Y coordinate.
+   */
+  void vertex(double x, double y);
+
+  /**
+   * Ends the current record.
+   */
+  void endRecord();
+
+}
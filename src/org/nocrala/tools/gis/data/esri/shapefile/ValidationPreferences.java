@@ -22,6 +22,12 @@ public class ValidationPreferences {
   private int maxNumberOfPointsPerShape = DEFAULT_MAX_NUMBER_OF_POINTS_PER_SHAPE;
   private PartType forcePartType = null;
 
+  private boolean queryBox = false;
+  private double queryMinX;
+  private double queryMinY;
+  private double queryMaxX;
+  private double queryMaxY;
+
   // Logic
 
   void advanceOneRecordNumber() {
@@ -32,6 +38,25 @@ public class ValidationPreferences {
     return expectedRecordNumber;
   }
 
+  /**
+   * Tells whether a record with the given bounding box must be read, according
+   * to the query box. Always true when no query box is set.
+   * 
+   * @param minX
+   * @param minY
+   * @param maxX
+   * @param maxY
+   * @return true if the boxes intersect, borders included.
+   */
+  public boolean intersectsQueryBox(double minX, double minY, double maxX,
+      double maxY) {
+    if (!this.queryBox) {
+      return true;
+    }
+    return minX <= this.queryMaxX && maxX >= this.queryMinX
+        && minY <= this.queryMaxY && maxY >= this.queryMinY;
+  }
+
   // Accessors
 
   public PartType getForcePartType() {
@@ -141,4 +166,54 @@ public class ValidationPreferences {
     this.maxNumberOfPointsPerShape = maxItems;
   }
 
+  public boolean hasQueryBox() {
+    return queryBox;
+  }
+
+  public double getQueryMinX() {
+    return queryMinX;
+  }
+
+  public double getQueryMinY() {
+    return queryMinY;
+  }
+
+  public double getQueryMaxX() {
+    return queryMaxX;
+  }
+
+  public double getQueryMaxY() {
+    return queryMaxY;
+  }
+
+  /**
+   * Restricts the reading to the records whose bounding box intersects the
+   * given rectangle. The other records are skipped using their content length:
+   * only their shape type and bounding box are read. Null shapes are always
+   * skipped. Defaults to no restriction.
+   * 
+   * @param minX
+   * @param minY
+   * @param maxX
+   * @param maxY
+   */
+  public void setQueryBox(double minX, double minY, double maxX, double maxY) {
+    if (minX > maxX || minY > maxY) {
+      throw new RuntimeException("Invalid query box [" + minX + "," + minY
+          + " : " + maxX + "," + maxY + "].");
+    }
+    this.queryBox = true;
+    this.queryMinX = minX;
+    this.queryMinY = minY;
+    this.queryMaxX = maxX;
+    this.queryMaxY = maxY;
+  }
+
+  /**
+   * Removes the query box, so that all the records are read again.
+   */
+  public void clearQueryBox() {
+    this.queryBox = false;
+  }
+
 }
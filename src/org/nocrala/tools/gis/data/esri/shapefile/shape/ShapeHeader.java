@@ -15,13 +15,23 @@ public class ShapeHeader {
 
   public ShapeHeader(final InputStream is, final ValidationPreferences rules)
       throws DataStreamEOFException, IOException, InvalidShapeFileException {
+    this(is, rules, rules.getExpectedRecordNumber());
+  }
+
+  /**
+   * Reads a record header, checking its record number against the given one
+   * instead of the sequential counter of the preferences. Used for random
+   * access, where records are not read in order.
+   */
+  public ShapeHeader(final InputStream is, final ValidationPreferences rules,
+      final int expectedRecordNumber) throws DataStreamEOFException,
+      IOException, InvalidShapeFileException {
 
     this.recordNumber = ISUtil.readBeIntMaybeEOF(is);
     if (!rules.isAllowBadRecordNumbers()) {
-      if (this.recordNumber != rules.getExpectedRecordNumber()) {
+      if (this.recordNumber != expectedRecordNumber) {
         throw new InvalidShapeFileException("Invalid record number. Expected "
-            + rules.getExpectedRecordNumber() + " but found "
-            + this.recordNumber + ".");
+            + expectedRecordNumber + " but found " + this.recordNumber + ".");
       }
     }
 
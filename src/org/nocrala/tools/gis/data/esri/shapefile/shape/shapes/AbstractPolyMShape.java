@@ -49,27 +49,7 @@ public abstract class AbstractPolyMShape extends org.nocrala.tools.gis.data.esri
   }
 
   public double[] getMOfPart(final int i) {
-    if (i < 0 || i >= this.numberOfParts) {
-      throw new RuntimeException("Invalid part " + i + ". Available parts [0:"
-          + this.numberOfParts + "].");
-    }
-    int from = this.partFirstPoints[i];
-    int to = i < this.numberOfParts - 1 ? this.partFirstPoints[i + 1]
-        : this.points.length;
-
-    if (from < 0 || from > this.points.length) {
-      throw new RuntimeException("Malformed content. Part start (" + from
-          + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
-    }
-
-    if (to < 0 || to > this.points.length) {
-      throw new RuntimeException("Malformed content. Part end (" + to
-          + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
-    }
-
-    return Arrays.copyOfRange(this.m, from, to);
+    return Arrays.copyOfRange(this.m, getPartStart(i), getPartEnd(i));
   }
 
   // Accessors
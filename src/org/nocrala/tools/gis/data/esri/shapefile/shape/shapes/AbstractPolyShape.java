@@ -2,7 +2,6 @@ package org.nocrala.tools.gis.data.esri.shapefile.shape.shapes;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
 
 import org.nocrala.tools.gis.data.esri.shapefile.ValidationPreferences;
 import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileException;
@@ -24,7 +23,8 @@ public abstract class AbstractPolyShape extends AbstractShape {
   protected int numberOfPoints;
 
   protected int[] partFirstPoints;
-  protected PointData[] points;
+  protected double[] xs;
+  protected double[] ys;
 
   public AbstractPolyShape(final ShapeHeader shapeHeader,
       final ShapeType shapeType, final InputStream is,
@@ -79,39 +79,80 @@ public abstract class AbstractPolyShape extends AbstractShape {
       this.partFirstPoints[i] = ISUtil.readLeInt(is);
     }
 
-    this.points = new PointData[this.numberOfPoints];
+    this.xs = new double[this.numberOfPoints];
+    this.ys = new double[this.numberOfPoints];
     for (int i = 0; i < this.numberOfPoints; i++) {
-      double x = ISUtil.readLeDouble(is);
-      double y = ISUtil.readLeDouble(is);
-      this.points[i] = new PointData(x, y);
+      this.xs[i] = ISUtil.readLeDouble(is);
+      this.ys[i] = ISUtil.readLeDouble(is);
     }
 
   }
 
   protected abstract String getShapeTypeName();
 
-  public PointData[] getPointsOfPart(final int i) {
-    if (i < 0 || i >= this.numberOfParts) {
-      throw new RuntimeException("Invalid part " + i + ". Available parts [0:"
-          + this.numberOfParts + "].");
-    }
+  /**
+   * Returns the index, in getXs() and getYs(), of the first point of a part.
+   * 
+   * @param i
+   *          the part.
+   * @return index of the first point of the part.
+   */
+  public int getPartStart(final int i) {
+    checkPart(i);
     int from = this.partFirstPoints[i];
-    int to = i < this.numberOfParts - 1 ? this.partFirstPoints[i + 1]
-        : this.points.length;
-
-    if (from < 0 || from > this.points.length) {
+    if (from < 0 || from > this.numberOfPoints) {
       throw new RuntimeException("Malformed content. Part start (" + from
           + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
+          + this.numberOfPoints + "].");
     }
+    return from;
+  }
 
-    if (to < 0 || to > this.points.length) {
+  /**
+   * Returns the index, in getXs() and getYs(), following the last point of a
+   * part.
+   * 
+   * @param i
+   *          the part.
+   * @return index after the last point of the part.
+   */
+  public int getPartEnd(final int i) {
+    checkPart(i);
+    int to = i < this.numberOfParts - 1 ? this.partFirstPoints[i + 1]
+        : this.numberOfPoints;
+    if (to < 0 || to > this.numberOfPoints) {
       throw new RuntimeException("Malformed content. Part end (" + to
           + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
+          + this.numberOfPoints + "].");
+    }
+    return to;
+  }
+
+  private void checkPart(final int i) {
+    if (i < 0 || i >= this.numberOfParts) {
+      throw new RuntimeException("Invalid part " + i + ". Available parts [0:"
+          + this.numberOfParts + "].");
     }
+  }
+
+  /**
+   * Returns the points of a part as objects. This allocates one PointData per
+   * point; prefer getXs(), getYs() with getPartStart() and getPartEnd().
+   * 
+   * @param i
+   *          the part.
+   * @return points of the part.
+   */
+  public PointData[] getPointsOfPart(final int i) {
+    return toPointData(getPartStart(i), getPartEnd(i));
+  }
 
-    return Arrays.copyOfRange(this.points, from, to);
+  private PointData[] toPointData(final int from, final int to) {
+    PointData[] points = new PointData[to - from];
+    for (int j = from; j < to; j++) {
+      points[j - from] = new PointData(this.xs[j], this.ys[j]);
+    }
+    return points;
   }
 
   // Getters
@@ -144,8 +185,42 @@ public abstract class AbstractPolyShape extends AbstractShape {
     return partFirstPoints;
   }
 
+  /**
+   * Returns all the points as objects. This allocates one PointData per point;
+   * prefer getXs() and getYs().
+   * 
+   * @return all the points.
+   */
   public PointData[] getPoints() {
-    return points;
+    return toPointData(0, this.numberOfPoints);
+  }
+
+  public double getX(final int index) {
+    return xs[index];
+  }
+
+  public double getY(final int index) {
+    return ys[index];
+  }
+
+  /**
+   * Returns the X coordinates of all the points. The array is not copied and
+   * must not be modified.
+   * 
+   * @return X coordinates.
+   */
+  public double[] getXs() {
+    return xs;
+  }
+
+  /**
+   * Returns the Y coordinates of all the points. The array is not copied and
+   * must not be modified.
+   * 
+   * @return Y coordinates.
+   */
+  public double[] getYs() {
+    return ys;
   }
 
 }
@@ -62,51 +62,11 @@ public abstract class AbstractPolyZShape extends org.nocrala.tools.gis.data.esri
   }
 
   public double[] getMOfPart(final int i) {
-    if (i < 0 || i >= this.numberOfParts) {
-      throw new RuntimeException("Invalid part " + i + ". Available parts [0:"
-          + this.numberOfParts + "].");
-    }
-    int from = this.partFirstPoints[i];
-    int to = i < this.numberOfParts - 1 ? this.partFirstPoints[i + 1]
-        : this.points.length;
-
-    if (from < 0 || from > this.points.length) {
-      throw new RuntimeException("Malformed content. Part start (" + from
-          + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
-    }
-
-    if (to < 0 || to > this.points.length) {
-      throw new RuntimeException("Malformed content. Part end (" + to
-          + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
-    }
-
-    return Arrays.copyOfRange(this.measures, from, to);
+    return Arrays.copyOfRange(this.measures, getPartStart(i), getPartEnd(i));
   }
 
   public double[] getZOfPart(final int i) {
-    if (i < 0 || i >= this.numberOfParts) {
-      throw new RuntimeException("Invalid part " + i + ". Available parts [0:"
-          + this.numberOfParts + "].");
-    }
-    int from = this.partFirstPoints[i];
-    int to = i < this.numberOfParts - 1 ? this.partFirstPoints[i + 1]
-        : this.points.length;
-
-    if (from < 0 || from > this.points.length) {
-      throw new RuntimeException("Malformed content. Part start (" + from
-          + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
-    }
-
-    if (to < 0 || to > this.points.length) {
-      throw new RuntimeException("Malformed content. Part end (" + to
-          + ") is out of range. Valid range of points is [0:"
-          + this.points.length + "].");
-    }
-
-    return Arrays.copyOfRange(this.z, from, to);
+    return Arrays.copyOfRange(this.z, getPartStart(i), getPartEnd(i));
   }
 
   // Accessors
@@ -0,0 +1,265 @@
+package org.nocrala.tools.gis.data.esri.shapefile.shape.shapes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.nocrala.tools.gis.data.esri.shapefile.ValidationPreferences;
+import org.nocrala.tools.gis.data.esri.shapefile.exception.InvalidShapeFileException;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.AbstractShape;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.Const;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.PointData;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeHeader;
+import org.nocrala.tools.gis.data.esri.shapefile.shape.ShapeType;
+import org.nocrala.tools.gis.data.esri.shapefile.util.ByteBufferInputStream;
+import org.nocrala.tools.gis.data.esri.shapefile.util.ISUtil;
+
+/**
+ * <p>
+ * A Polyline, Polygon or MultiPatch shape, in any of its plain, Z and M
+ * variants, whose coordinates are decoded from the mapped file on first
+ * access. Only the bounding box and the part table are read when the shape is
+ * created, which is enough to list or filter shapes.
+ * </p>
+ * 
+ * <p>
+ * The decoded coordinates are held through a soft reference: the garbage
+ * collector may drop them under memory pressure, in which case they are
+ * decoded again on the next access. Z and M values are not available. Created
+ * by IndexedShapeFileReader.getLazyShape(); an instance can be read by several
+ * threads.
+ * </p>
+ */
+public class LazyPolyShape extends AbstractShape {
+
+  private final ByteBuffer buffer;
+  private final int coordinatesOffset;
+
+  private final double boxMinX;
+  private final double boxMinY;
+  private final double boxMaxX;
+  private final double boxMaxY;
+
+  private final int numberOfParts;
+  private final int numberOfPoints;
+
+  private final int[] partFirstPoints;
+
+  private volatile SoftReference<double[][]> coordinates = new SoftReference<double[][]>(
+      null);
+
+  /**
+   * Reads the bounding box and the part table of a shape.
+   * 
+   * @param shapeHeader
+   *          the record header.
+   * @param shapeType
+   *          the shape type, already read.
+   * @param buffer
+   *          the whole mapped .shp file.
+   * @param position
+   *          the position of the bounding box of the shape, right after its
+   *          shape type.
+   * @param rules
+   *          the validation preferences.
+   * @throws InvalidShapeFileException
+   *           if the data is malformed.
+   * @throws IOException
+   *           if the shape goes beyond the end of the buffer.
+   */
+  public LazyPolyShape(final ShapeHeader shapeHeader,
+      final ShapeType shapeType, final ByteBuffer buffer, final int position,
+      final ValidationPreferences rules) throws InvalidShapeFileException,
+      IOException {
+
+    super(shapeHeader, shapeType, null, rules);
+
+    ByteBufferInputStream is = new ByteBufferInputStream(buffer);
+    is.position(position);
+
+    this.boxMinX = ISUtil.readLeDouble(is);
+    this.boxMinY = ISUtil.readLeDouble(is);
+    this.boxMaxX = ISUtil.readLeDouble(is);
+    this.boxMaxY = ISUtil.readLeDouble(is);
+
+    this.numberOfParts = ISUtil.readLeInt(is);
+    this.numberOfPoints = ISUtil.readLeInt(is);
+
+    if (this.numberOfParts < 0 || this.numberOfParts > this.numberOfPoints) {
+      throw new InvalidShapeFileException("Invalid " + shapeType
+          + " shape number of parts. It should be between zero and "
+          + "the number of points (" + this.numberOfPoints + "), but found "
+          + this.numberOfParts + ". " + Const.PREFERENCES);
+    }
+    if (!rules.isAllowUnlimitedNumberOfPointsPerShape()
+        && this.numberOfPoints > rules.getMaxNumberOfPointsPerShape()) {
+      throw new InvalidShapeFileException("Invalid " + shapeType
+          + " shape number of points. "
+          + "The allowed maximum number of points was "
+          + rules.getMaxNumberOfPointsPerShape() + " but found "
+          + this.numberOfPoints + ". " + Const.PREFERENCES);
+    }
+
+    this.partFirstPoints = new int[this.numberOfParts];
+    for (int i = 0; i < this.numberOfParts; i++) {
+      this.partFirstPoints[i] = ISUtil.readLeInt(is);
+      if (this.partFirstPoints[i] < (i == 0 ? 0 : this.partFirstPoints[i - 1])
+          || this.partFirstPoints[i] > this.numberOfPoints) {
+        throw new InvalidShapeFileException("Malformed content. Part start ("
+            + this.partFirstPoints[i] + ") is out of range. Valid range of "
+            + "points is [0:" + this.numberOfPoints + "].");
+      }
+    }
+    if (shapeType == ShapeType.MULTIPATCH) {
+      is.skip(this.numberOfParts * 4L);
+    }
+
+    this.coordinatesOffset = is.position();
+    if ((long) this.numberOfPoints * 8 * 2 > is.remaining()) {
+      throw new EOFException();
+    }
+    this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Returns the coordinates, decoding them if they were never decoded or were
+   * dropped by the garbage collector.
+   */
+  private double[][] coordinates() {
+    double[][] xy = this.coordinates.get();
+    if (xy == null) {
+      double[] xs = new double[this.numberOfPoints];
+      double[] ys = new double[this.numberOfPoints];
+      int position = this.coordinatesOffset;
+      for (int i = 0; i < this.numberOfPoints; i++) {
+        xs[i] = this.buffer.getDouble(position);
+        ys[i] = this.buffer.getDouble(position + 8);
+        position += 16;
+      }
+      xy = new double[][] { xs, ys };
+      this.coordinates = new SoftReference<double[][]>(xy);
+    }
+    return xy;
+  }
+
+  /**
+   * Tells whether the coordinates are currently decoded in memory.
+   * 
+   * @return true if the next access to the points won't decode them.
+   */
+  public boolean isDecoded() {
+    return this.coordinates.get() != null;
+  }
+
+  /**
+   * Returns the index, in getXs() and getYs(), of the first point of a part.
+   * 
+   * @param i
+   *          the part.
+   * @return index of the first point of the part.
+   */
+  public int getPartStart(final int i) {
+    checkPart(i);
+    return this.partFirstPoints[i];
+  }
+
+  /**
+   * Returns the index, in getXs() and getYs(), following the last point of a
+   * part.
+   * 
+   * @param i
+   *          the part.
+   * @return index after the last point of the part.
+   */
+  public int getPartEnd(final int i) {
+    checkPart(i);
+    return i < this.numberOfParts - 1 ? this.partFirstPoints[i + 1]
+        : this.numberOfPoints;
+  }
+
+  private void checkPart(final int i) {
+    if (i < 0 || i >= this.numberOfParts) {
+      throw new RuntimeException("Invalid part " + i + ". Available parts [0:"
+          + this.numberOfParts + "].");
+    }
+  }
+
+  /**
+   * Returns the points of a part as objects, decoding the coordinates if
+   * needed.
+   * 
+   * @param i
+   *          the part.
+   * @return points of the part.
+   */
+  public PointData[] getPointsOfPart(final int i) {
+    return toPointData(getPartStart(i), getPartEnd(i));
+  }
+
+  private PointData[] toPointData(final int from, final int to) {
+    double[][] xy = coordinates();
+    PointData[] points = new PointData[to - from];
+    for (int j = from; j < to; j++) {
+      points[j - from] = new PointData(xy[0][j], xy[1][j]);
+    }
+    return points;
+  }
+
+  // Getters
+
+  public double getBoxMinX() {
+    return boxMinX;
+  }
+
+  public double getBoxMinY() {
+    return boxMinY;
+  }
+
+  public double getBoxMaxX() {
+    return boxMaxX;
+  }
+
+  public double getBoxMaxY() {
+    return boxMaxY;
+  }
+
+  public int getNumberOfParts() {
+    return numberOfParts;
+  }
+
+  public int getNumberOfPoints() {
+    return numberOfPoints;
+  }
+
+  /**
+   * Returns all the points as objects, decoding the coordinates if needed.
+   * 
+   * @return all the points.
+   */
+  public PointData[] getPoints() {
+    return toPointData(0, this.numberOfPoints);
+  }
+
+  /**
+   * Returns the X coordinates of all the points, decoding them if needed. The
+   * array is shared and must not be modified.
+   * 
+   * @return X coordinates.
+   */
+  public double[] getXs() {
+    return coordinates()[0];
+  }
+
+  /**
+   * Returns the Y coordinates of all the points, decoding them if needed. The
+   * array is shared and must not be modified.
+   * 
+   * @return Y coordinates.
+   */
+  public double[] getYs() {
+    return coordinates()[1];
+  }
+
+}
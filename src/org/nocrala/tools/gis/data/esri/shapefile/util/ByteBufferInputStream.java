@@ -0,0 +1,153 @@
+package org.nocrala.tools.gis.data.esri.shapefile.util;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ * An InputStream over a ByteBuffer (typically a memory-mapped file) that can
+ * also decode little and big endian values straight from the buffer, without
+ * copying them to an intermediate array first.
+ * </p>
+ *
+ * <p>
+ * ISUtil detects this stream and delegates to the typed read methods, so the
+ * shape classes don't need to know where their data comes from. The position
+ * is private to each instance; several streams may share one mapping.
+ * </p>
+ */
+public class ByteBufferInputStream extends InputStream implements
+    ShapeDataInput {
+
+  private final ByteBuffer le;
+  private final ByteBuffer be;
+  private final int limit;
+  private int position;
+  private int mark;
+
+  public ByteBufferInputStream(final ByteBuffer buffer) {
+    this.le = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    this.be = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    this.position = buffer.position();
+    this.mark = this.position;
+    this.limit = buffer.limit();
+  }
+
+  // Typed reads
+
+  @Override
+  public int readBeInt() throws EOFException {
+    require(4);
+    int value = this.be.getInt(this.position);
+    this.position += 4;
+    return value;
+  }
+
+  @Override
+  public int readLeInt() throws EOFException {
+    require(4);
+    int value = this.le.getInt(this.position);
+    this.position += 4;
+    return value;
+  }
+
+  @Override
+  public double readBeDouble() throws EOFException {
+    require(8);
+    double value = this.be.getDouble(this.position);
+    this.position += 8;
+    return value;
+  }
+
+  @Override
+  public double readLeDouble() throws EOFException {
+    require(8);
+    double value = this.le.getDouble(this.position);
+    this.position += 8;
+    return value;
+  }
+
+  private void require(final int length) throws EOFException {
+    if (this.limit - this.position < length) {
+      throw new EOFException();
+    }
+  }
+
+  // Position
+
+  public int position() {
+    return this.position;
+  }
+
+  public void position(final int newPosition) {
+    if (newPosition < 0 || newPosition > this.limit) {
+      throw new IllegalArgumentException("Invalid position " + newPosition
+          + ". Valid range is [0:" + this.limit + "].");
+    }
+    this.position = newPosition;
+  }
+
+  public int remaining() {
+    return this.limit - this.position;
+  }
+
+  // InputStream
+
+  @Override
+  public int read() {
+    if (this.position >= this.limit) {
+      return -1;
+    }
+    return this.le.get(this.position++) & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) {
+    if (len == 0) {
+      return 0;
+    }
+    int available = this.limit - this.position;
+    if (available <= 0) {
+      return -1;
+    }
+    int count = Math.min(len, available);
+    ByteBuffer view = this.le.duplicate();
+    view.position(this.position);
+    view.get(b, off, count);
+    this.position += count;
+    return count;
+  }
+
+  @Override
+  public long skip(final long n) {
+    if (n <= 0) {
+      return 0;
+    }
+    int count = (int) Math.min(n, this.limit - this.position);
+    this.position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return this.limit - this.position;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  @Override
+  public void mark(final int readlimit) {
+    this.mark = this.position;
+  }
+
+  @Override
+  public void reset() {
+    this.position = this.mark;
+  }
+
+}
@@ -0,0 +1,63 @@
+package org.nocrala.tools.gis.data.esri.shapefile.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A buffered InputStream that decodes little and big endian values through
+ * its own scratch buffer. Used by ShapeFileReader when reading from a plain
+ * InputStream; an instance must not be shared between threads.
+ */
+public class DecodingInputStream extends BufferedInputStream implements
+    ShapeDataInput {
+
+  private final byte[] scratch = new byte[8];
+  private final ByteBuffer le = ByteBuffer.wrap(this.scratch).order(
+      ByteOrder.LITTLE_ENDIAN);
+  private final ByteBuffer be = ByteBuffer.wrap(this.scratch).order(
+      ByteOrder.BIG_ENDIAN);
+
+  public DecodingInputStream(final InputStream in) {
+    super(in);
+  }
+
+  @Override
+  public int readBeInt() throws IOException {
+    readIntoScratch(4);
+    return this.be.getInt(0);
+  }
+
+  @Override
+  public int readLeInt() throws IOException {
+    readIntoScratch(4);
+    return this.le.getInt(0);
+  }
+
+  @Override
+  public double readBeDouble() throws IOException {
+    readIntoScratch(8);
+    return this.be.getDouble(0);
+  }
+
+  @Override
+  public double readLeDouble() throws IOException {
+    readIntoScratch(8);
+    return this.le.getDouble(0);
+  }
+
+  private void readIntoScratch(final int length) throws IOException {
+    int total = 0;
+    while (total < length) {
+      int read = read(this.scratch, total, length - total);
+      if (read < 0) {
+        throw new EOFException();
+      }
+      total += read;
+    }
+  }
+
+}
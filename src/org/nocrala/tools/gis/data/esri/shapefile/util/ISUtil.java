@@ -7,88 +7,96 @@ import java.nio.ByteBuffer;
 
 import org.nocrala.tools.gis.data.esri.shapefile.exception.DataStreamEOFException;
 
+/**
+ * Reads primitive values from a shape file stream. Streams implementing
+ * ShapeDataInput decode the values themselves, with their own state; other
+ * streams are read through a buffer local to the call. No state is shared
+ * between calls, so concurrent readers never block each other.
+ */
 public class ISUtil {
 
-  private static final byte[] BUFFER = new byte[8];
-  private static final ByteBuffer BYTE_BUFFER = ByteBuffer.wrap(BUFFER);
-
   // Big endian int
 
-  public static synchronized int readBeIntMaybeEOF(final InputStream is)
+  public static int readBeIntMaybeEOF(final InputStream is)
       throws DataStreamEOFException, IOException {
-    readIntoBufferMaybeEOF(is, 4);
-    return IntSerializer.deserializeBigEndian(BYTE_BUFFER);
+    try {
+      return readBeInt(is);
+    } catch (EOFException e) {
+      throw new DataStreamEOFException();
+    }
   }
 
-  public static synchronized int readBeInt(final InputStream is)
-      throws IOException {
-    readIntoBuffer(is, 4);
-    return IntSerializer.deserializeBigEndian(BYTE_BUFFER);
+  public static int readBeInt(final InputStream is) throws IOException {
+    if (is instanceof ShapeDataInput) {
+      return ((ShapeDataInput) is).readBeInt();
+    }
+    return IntSerializer.deserializeBigEndian(readIntoBuffer(is, 4));
   }
 
   // Big endian double
 
-  public static synchronized double readBeDoubleMaybeEOF(final InputStream is)
+  public static double readBeDoubleMaybeEOF(final InputStream is)
       throws DataStreamEOFException, IOException {
-    readIntoBufferMaybeEOF(is, 8);
-    return DoubleSerializer.deserializeBigEndian(BYTE_BUFFER);
+    try {
+      return readBeDouble(is);
+    } catch (EOFException e) {
+      throw new DataStreamEOFException();
+    }
   }
 
-  public static synchronized double readBeDouble(final InputStream is)
-      throws IOException {
-    readIntoBuffer(is, 8);
-    return DoubleSerializer.deserializeBigEndian(BYTE_BUFFER);
+  public static double readBeDouble(final InputStream is) throws IOException {
+    if (is instanceof ShapeDataInput) {
+      return ((ShapeDataInput) is).readBeDouble();
+    }
+    return DoubleSerializer.deserializeBigEndian(readIntoBuffer(is, 8));
   }
 
   // Little endian int
 
-  public static synchronized int readLeIntMaybeEOF(final InputStream is)
+  public static int readLeIntMaybeEOF(final InputStream is)
       throws DataStreamEOFException, IOException {
-    readIntoBufferMaybeEOF(is, 4);
-    return IntSerializer.deserializeLittleEndian(BYTE_BUFFER);
+    try {
+      return readLeInt(is);
+    } catch (EOFException e) {
+      throw new DataStreamEOFException();
+    }
   }
 
-  public static synchronized int readLeInt(final InputStream is)
-      throws IOException {
-    readIntoBuffer(is, 4);
-    // System.out.println("--> " + HexaUtil.byteArrayToString(BUFFER));
-    return IntSerializer.deserializeLittleEndian(BYTE_BUFFER);
+  public static int readLeInt(final InputStream is) throws IOException {
+    if (is instanceof ShapeDataInput) {
+      return ((ShapeDataInput) is).readLeInt();
+    }
+    return IntSerializer.deserializeLittleEndian(readIntoBuffer(is, 4));
   }
 
   // Little endian double
 
-  public static synchronized double readLeDoubleMaybeEOF(final InputStream is)
+  public static double readLeDoubleMaybeEOF(final InputStream is)
       throws DataStreamEOFException, IOException {
-    readIntoBufferMaybeEOF(is, 8);
-    return DoubleSerializer.deserializeLittleEndian(BYTE_BUFFER);
-  }
-
-  public static synchronized double readLeDouble(final InputStream is)
-      throws IOException {
-    readIntoBuffer(is, 8);
-    return DoubleSerializer.deserializeLittleEndian(BYTE_BUFFER);
-  }
-
-  // Utils
-
-  private static void readIntoBufferMaybeEOF(final InputStream is,
-      final int length) throws DataStreamEOFException, IOException {
     try {
-      int read = is.read(BUFFER, 0, length);
-      if (read != length) {
-        throw new DataStreamEOFException();
-      }
+      return readLeDouble(is);
     } catch (EOFException e) {
       throw new DataStreamEOFException();
     }
   }
 
-  private static void readIntoBuffer(final InputStream is, final int length)
-      throws IOException {
-    int read = is.read(BUFFER, 0, length);
+  public static double readLeDouble(final InputStream is) throws IOException {
+    if (is instanceof ShapeDataInput) {
+      return ((ShapeDataInput) is).readLeDouble();
+    }
+    return DoubleSerializer.deserializeLittleEndian(readIntoBuffer(is, 8));
+  }
+
+  // Utils
+
+  private static ByteBuffer readIntoBuffer(final InputStream is,
+      final int length) throws IOException {
+    byte[] buffer = new byte[8];
+    int read = is.read(buffer, 0, length);
     if (read != length) {
       throw new EOFException();
     }
+    return ByteBuffer.wrap(buffer);
   }
 
 }
@@ -0,0 +1,56 @@
+package org.nocrala.tools.gis.data.esri.shapefile.util;
+
+import java.io.IOException;
+
+/**
+ * Source of the primitive values of a shape file. Each ShapeFileReader owns
+ * its own instance, so readers never share decoding state and never contend
+ * with each other.
+ */
+public interface ShapeDataInput {
+
+  /**
+   * Reads a big endian int.
+   * 
+   * @return the value read.
+   * @throws java.io.EOFException
+   *           if the data ends before 4 bytes could be read.
+   * @throws IOException
+   *           if it's not possible to read the data.
+   */
+  int readBeInt() throws IOException;
+
+  /**
+   * Reads a little endian int.
+   * 
+   * @return the value read.
+   * @throws java.io.EOFException
+   *           if the data ends before 4 bytes could be read.
+   * @throws IOException
+   *           if it's not possible to read the data.
+   */
+  int readLeInt() throws IOException;
+
+  /**
+   * Reads a big endian double.
+   * 
+   * @return the value read.
+   * @throws java.io.EOFException
+   *           if the data ends before 8 bytes could be read.
+   * @throws IOException
+   *           if it's not possible to read the data.
+   */
+  double readBeDouble() throws IOException;
+
+  /**
+   * Reads a little endian double.
+   * 
+   * @return the value read.
+   * @throws java.io.EOFException
+   *           if the data ends before 8 bytes could be read.
+   * @throws IOException
+   *           if it's not possible to read the data.
+   */
+  double readLeDouble() throws IOException;
+
+}